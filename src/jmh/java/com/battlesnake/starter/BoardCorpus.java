@@ -0,0 +1,148 @@
+package com.battlesnake.starter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The board states every benchmark runs against, from a 7x7 duel up to a
+ * 25x25 board with eight snakes and well over a hundred body segments.
+ *
+ * They are kept as /move request bodies under {@code corpus/} so every run
+ * sees exactly the same bytes. {@link #main(String[])} writes them again,
+ * e.g. after the request format changes.
+ */
+@State(Scope.Thread)
+public class BoardCorpus {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    @Param({ "7x7-2", "11x11-4", "19x19-6", "25x25-8" })
+    public String board;
+
+    byte[] body;
+    MoveRequest request;
+    SearchBoard searchBoard;
+
+    @Setup
+    public void load() throws IOException {
+        body = read(board);
+        request = new MoveRequestDecoder().decode(body, new MoveRequest());
+        searchBoard = new SearchBoard();
+        searchBoard.load(request);
+    }
+
+    static byte[] read(String name) throws IOException {
+        try (InputStream in = BoardCorpus.class.getResourceAsStream("/corpus/" + name + ".json")) {
+            if (in == null)
+                throw new IOException("no corpus board " + name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0;)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }//read
+
+    /**
+     * Writes the corpus to the given directory, src/jmh/resources/corpus by default.
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "src/jmh/resources/corpus");
+        Files.createDirectories(dir);
+        write(dir, "7x7-2", 7, 2, 6, 1L);
+        write(dir, "11x11-4", 11, 4, 8, 2L);
+        write(dir, "19x19-6", 19, 6, 14, 3L);
+        write(dir, "25x25-8", 25, 8, 18, 4L);
+    }
+
+    private static void write(Path dir, String name, int size, int snakes, int length, long seed) throws IOException {
+        Files.write(dir.resolve(name + ".json"), JSON_MAPPER.writeValueAsBytes(generate(size, snakes, length, seed)));
+    }
+
+    /**
+     * Lays out snakes as random walks, each up to {@code length} long, with a
+     * little food in the free squares. The same seed always gives the same board.
+     */
+    static ObjectNode generate(int size, int snakes, int length, long seed) {
+        Random random = new Random(seed);
+        boolean[] taken = new boolean[size * size];
+        ObjectNode root = JSON_MAPPER.createObjectNode();
+        root.putObject("game").put("id", "corpus-" + size + "x" + size).put("timeout", 500);
+
+        ObjectNode board = root.putObject("board");
+        board.put("height", size).put("width", size);
+        ArrayNode bodies = JSON_MAPPER.createArrayNode();
+        int segments = 0;
+        for (int s = 0; s < snakes; s++) {
+            List<Integer> body = walk(random, taken, size, length);
+            ObjectNode snake = bodies.addObject();
+            snake.put("id", "snake-" + s).put("name", "snake-" + s).put("health", 40 + random.nextInt(61));
+            ArrayNode points = snake.putArray("body");
+            for (int cell : body)
+                points.addObject().put("x", cell % size).put("y", cell / size);
+            snake.set("head", points.get(0));
+            snake.put("length", body.size()).put("shout", "");
+            segments += body.size();
+        }//for
+
+        ArrayNode food = board.putArray("food");
+        for (int i = 0; i < Math.max(2, size * size / 25); i++) {
+            int cell = random.nextInt(size * size);
+            if (!taken[cell]) {
+                taken[cell] = true;
+                food.addObject().put("x", cell % size).put("y", cell / size);
+            }
+        }//for
+        board.putArray("hazards");
+        board.set("snakes", bodies);
+        root.put("turn", segments * 3);
+        root.set("you", bodies.get(0));
+        return root;
+    }//generate
+
+    /**
+     * @return a body, head first, grown from a random free tail square.
+     */
+    private static List<Integer> walk(Random random, boolean[] taken, int size, int length) {
+        List<Integer> body = new ArrayList<>();
+        int cell;
+        do {
+            cell = random.nextInt(size * size);
+        } while (taken[cell]);
+        taken[cell] = true;
+        body.add(0, cell);
+        int[] options = new int[4];
+        while (body.size() < length) {
+            int count = 0;
+            for (int move = 0; move < 4; move++) {
+                int x = cell % size + SearchBoard.DX[move];
+                int y = cell / size + SearchBoard.DY[move];
+                if (x >= 0 && y >= 0 && x < size && y < size && !taken[y * size + x])
+                    options[count++] = y * size + x;
+            }//for
+            if (count == 0)
+                break;
+            cell = options[random.nextInt(count)];
+            taken[cell] = true;
+            body.add(0, cell);
+        }//while
+        return body;
+    }//walk
+
+}
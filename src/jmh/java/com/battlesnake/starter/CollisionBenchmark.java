@@ -0,0 +1,75 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The collision checks every turn and every search node lean on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    private final SearchBoard scratch = new SearchBoard();
+    private int[] moves = new int[0];
+
+    /**
+     * Builds the board from a request, as a turn that doesn't follow on from
+     * the last does, and asks which moves are safe for every snake.
+     */
+    @Benchmark
+    public int loadBoard(BoardCorpus corpus) {
+        scratch.load(corpus.request);
+        int safe = 0;
+        for (int s = 0; s < scratch.getSnakeCount(); s++)
+            for (int move = 0; move < 4; move++)
+                if (scratch.isSafe(s, move))
+                    safe++;
+        return safe;
+    }
+
+    /**
+     * {@link SearchBoard#isSafe(int, int)} for every snake and move.
+     */
+    @Benchmark
+    public int safeMoves(BoardCorpus corpus) {
+        SearchBoard position = corpus.searchBoard;
+        int safe = 0;
+        for (int s = 0; s < position.getSnakeCount(); s++)
+            for (int move = 0; move < 4; move++)
+                if (position.isSafe(s, move))
+                    safe++;
+        return safe;
+    }
+
+    /**
+     * One simulated turn from a copy of the position, as a search node does it.
+     */
+    @Benchmark
+    public long step(BoardCorpus corpus) {
+        SearchBoard position = corpus.searchBoard;
+        if (moves.length < position.getSnakeCount())
+            moves = new int[position.getSnakeCount()];
+        for (int s = 0; s < position.getSnakeCount(); s++) {
+            moves[s] = 0;
+            while (moves[s] < 3 && !position.isSafe(s, moves[s]))
+                moves[s]++;
+        }//for
+        scratch.copyFrom(position).step(moves);
+        return scratch.getHash();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Food search: building the per-turn distance fields and picking a target from them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoodBenchmark {
+
+    private final PathFinder paths = new PathFinder();
+    private final SearchBoard next = new SearchBoard();
+    private int target;
+
+    /**
+     * A second position one turn on, so alternating between the two defeats
+     * the per-turn cache and every update does the full work.
+     */
+    @Setup(Level.Trial)
+    public void prepare(BoardCorpus corpus) {
+        SearchBoard position = corpus.searchBoard;
+        int[] moves = new int[position.getSnakeCount()];
+        for (int s = 0; s < moves.length; s++)
+            while (moves[s] < 3 && !position.isSafe(s, moves[s]))
+                moves[s]++;
+        next.copyFrom(position).step(moves);
+        paths.update(position);
+        target = paths.closestFoodWon(position, corpus.request.youIndex);
+        if (target < 0)
+            target = position.tailCell(corpus.request.youIndex);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public int distanceFields(BoardCorpus corpus) {
+        paths.update(corpus.searchBoard);
+        paths.update(next);
+        return paths.distance(0, 0);
+    }
+
+    @Benchmark
+    public int closestFood(BoardCorpus corpus) {
+        paths.update(corpus.searchBoard);
+        return paths.closestFoodWon(corpus.searchBoard, corpus.request.youIndex);
+    }
+
+    @Benchmark
+    public int aStar(BoardCorpus corpus) {
+        return paths.aStar(corpus.searchBoard, corpus.request.youIndex, target);
+    }
+
+}
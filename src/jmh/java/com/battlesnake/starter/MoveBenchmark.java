@@ -0,0 +1,40 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole /move turn: decoding the body, looking the game up and deciding.
+ *
+ * The fork runs the greedy engine with logging turned down, so this measures
+ * the fixed cost around the search rather than the search budget itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-DENGINE=greedy", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn" })
+public class MoveBenchmark {
+
+    private final Snake.Handler handler = new Snake.Handler();
+    private final MoveRequestDecoder decoder = new MoveRequestDecoder();
+    private final MoveRequest request = new MoveRequest();
+
+    @Benchmark
+    public Map<String, String> move(BoardCorpus corpus) throws IOException {
+        return handler.move(decoder.decode(corpus.body, request));
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reading a /move body the way {@link Snake.Handler#process} does, next to the
+ * tree based parse every other route still uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+
+    private final MoveRequestDecoder decoder = new MoveRequestDecoder();
+    private final MoveRequest request = new MoveRequest();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Benchmark
+    public MoveRequest decode(BoardCorpus corpus) throws IOException {
+        return decoder.decode(corpus.body, request);
+    }
+
+    @Benchmark
+    public JsonNode readTree(BoardCorpus corpus) throws IOException {
+        return mapper.readTree(corpus.body);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool that move decisions run on, apart from Jetty's request threads.
+ *
+ * Request threads only parse, hand the decision over and write the answer,
+ * so a burst of /move calls can't starve the server of threads to accept
+ * connections with. The pool has one thread per core and a short queue; when
+ * both are full {@link #call(Callable)} says so straight away instead of
+ * letting the request wait behind searches it has no time for, and the caller
+ * answers with something cheap.
+ *
+ * Sized by the COMPUTE_THREADS and COMPUTE_QUEUE system properties.
+ */
+public class ComputePool {
+
+    public static final int DEFAULT_THREADS = Integer.getInteger("COMPUTE_THREADS",
+            Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_QUEUE = Integer.getInteger("COMPUTE_QUEUE", DEFAULT_THREADS);
+
+    private final ThreadPoolExecutor executor;
+
+    public ComputePool() {
+        this(DEFAULT_THREADS, DEFAULT_QUEUE);
+    }
+
+    public ComputePool(int threads, int queue) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "compute-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queue)), factory, new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Runs a task on the pool and waits for it.
+     *
+     * @return the task's result, or null if the pool was too busy to take it.
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        return call(task, Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs a task on the pool and waits for it, but not past the deadline.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} value to stop waiting at,
+     *                      or {@link Long#MAX_VALUE} to wait for as long as it takes.
+     * @return the task's result, or null if the pool was too busy to take it.
+     * @throws TimeoutException if the task wasn't done by the deadline. One that
+     *                          hadn't started yet is dropped, one that had is
+     *                          left to finish on its own.
+     */
+    public <T> T call(Callable<T> task, long deadlineNanos) throws Exception {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        try {
+            if (deadlineNanos == Long.MAX_VALUE)
+                return future.get();
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw e;
+        }
+    }//call
+
+    /**
+     * @return decisions waiting for a thread.
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return decisions running right now.
+     */
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+}
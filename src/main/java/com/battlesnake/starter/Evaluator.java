@@ -0,0 +1,24 @@
+package com.battlesnake.starter;
+
+/**
+ * Static evaluation of a search position from one snake's point of view.
+ * 
+ * Higher is better. Terminal positions (wins and losses) are scored by the
+ * search engines themselves, this only looks at boards where we are alive.
+ * The features and weights are those of {@link BatchEvaluator}, this scores a
+ * block of one for callers that need a score straight away.
+ */
+public class Evaluator {
+
+    private final BatchEvaluator batch = new BatchEvaluator();
+
+    /**
+     * Scores a board for the given snake.
+     */
+    public int evaluate(SearchBoard board, int you) {
+        batch.clear();
+        int slot = batch.add(board, you);
+        return batch.evaluate()[slot];
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjIntConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-game event log that keeps logging off the request threads.
+ *
+ * An event is a constant message template with up to three {@code long}
+ * arguments. Request threads only claim a slot in a fixed ring buffer and copy
+ * those in; a background thread fills in the templates and hands the lines to
+ * slf4j. Nothing is formatted, boxed or allocated on the way in, and when the
+ * buffer is full the event is dropped and counted instead of making a move wait.
+ *
+ * Every game has a verbosity, one of {@link #ERROR} to {@link #DEBUG}, and
+ * events above it are discarded before they reach the buffer. New games get
+ * {@link #INFO} if they fall in the LOG_SAMPLE sample (1 in N games, every game
+ * by default) and {@link #WARN} otherwise, so a busy server can keep detailed
+ * logs for a few games and raise a single game's level while debugging it.
+ */
+public class EventLog {
+
+    public static final int ERROR = 0;
+    public static final int WARN = 1;
+    public static final int INFO = 2;
+    public static final int DEBUG = 3;
+
+    private static final String[] LEVELS = { "ERROR", "WARN", "INFO", "DEBUG" };
+    private static final Logger LOG = LoggerFactory.getLogger(EventLog.class);
+    private static final int SAMPLE = Math.max(1, Integer.getInteger("LOG_SAMPLE", 1));
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int mask;
+    private final AtomicLongArray published;
+    private final String[] games;
+    private final String[] templates;
+    private final int[] levels;
+    private final long[] args;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ObjIntConsumer<String> sink;
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * @param capacity events that can wait to be written, rounded up to a power of two.
+     * @param sink     receives each finished line with its level, on the draining thread.
+     */
+    public EventLog(int capacity, ObjIntConsumer<String> sink) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        this.games = new String[size];
+        this.templates = new String[size];
+        this.levels = new int[size];
+        this.args = new long[size * 3];
+        this.sink = sink;
+        for (int i = 0; i < size; i++)
+            published.set(i, -1);
+    }
+
+    /**
+     * @return the log every game writes to, drained by a daemon thread.
+     */
+    public static EventLog shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * @return the verbosity a new game starts with.
+     */
+    public static int initialVerbosity(String game) {
+        return (game.hashCode() & Integer.MAX_VALUE) % SAMPLE == 0 ? INFO : WARN;
+    }
+
+    /**
+     * @return the level for a name such as "debug", or -1 if there is none.
+     */
+    public static int level(String name) {
+        for (int i = 0; i < LEVELS.length; i++)
+            if (LEVELS[i].equalsIgnoreCase(name))
+                return i;
+        return -1;
+    }
+
+    public void log(int level, int verbosity, String game, String template) {
+        log(level, verbosity, game, template, 0, 0, 0);
+    }
+
+    public void log(int level, int verbosity, String game, String template, long a) {
+        log(level, verbosity, game, template, a, 0, 0);
+    }
+
+    public void log(int level, int verbosity, String game, String template, long a, long b) {
+        log(level, verbosity, game, template, a, b, 0);
+    }
+
+    /**
+     * Queues an event unless the game's verbosity is below its level.
+     *
+     * @param template message with a {} for each argument used.
+     */
+    public void log(int level, int verbosity, String game, String template, long a, long b, long c) {
+        if (level > verbosity)
+            return;
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        games[slot] = game;
+        templates[slot] = template;
+        levels[slot] = level;
+        args[slot * 3] = a;
+        args[slot * 3 + 1] = b;
+        args[slot * 3 + 2] = c;
+        published.set(slot, sequence);
+    }//log
+
+    /**
+     * Writes out every event that is ready.
+     *
+     * @return how many events were written.
+     */
+    public synchronized int drain() {
+        int written = 0;
+        long sequence = consumed.get();
+        while (true) {
+            int slot = (int) sequence & mask;
+            if (published.get(slot) != sequence)
+                break;
+            line.setLength(0);
+            line.append('[').append(games[slot]).append("] ");
+            format(templates[slot], slot * 3);
+            int level = levels[slot];
+            games[slot] = null;
+            consumed.set(++sequence);
+            sink.accept(line.toString(), level);
+            written++;
+        }//while
+        return written;
+    }//drain
+
+    /**
+     * @return events thrown away because the buffer was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void format(String template, int first) {
+        int arg = 0;
+        int from = 0;
+        int at;
+        while (arg < 3 && (at = template.indexOf("{}", from)) >= 0) {
+            line.append(template, from, at).append(args[first + arg++]);
+            from = at + 2;
+        }//while
+        line.append(template, from, template.length());
+    }//format
+
+    private void run() {
+        while (true) {
+            if (drain() == 0)
+                LockSupport.parkNanos(IDLE_NANOS);
+        }//while
+    }
+
+    private static void write(String line, int level) {
+        if (level == ERROR)
+            LOG.error(line);
+        else if (level == WARN)
+            LOG.warn(line);
+        else if (level == INFO)
+            LOG.info(line);
+        else
+            LOG.debug(line);
+    }
+
+    /**
+     * Started on first use, with whatever is left written out on shutdown.
+     */
+    private static class Shared {
+        static final EventLog INSTANCE = new EventLog(Integer.getInteger("LOG_BUFFER", 8192), EventLog::write);
+
+        static {
+            Thread drainer = new Thread(INSTANCE::run, "event-log");
+            drainer.setDaemon(true);
+            drainer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::drain, "event-log-flush"));
+        }
+    }
+
+}
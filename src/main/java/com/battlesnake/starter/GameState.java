@@ -0,0 +1,514 @@
+package com.battlesnake.starter;
+
+import java.awt.Point;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Everything the snake remembers between turns of a single game.
+ * 
+ * One instance exists per game and per snake we are playing in it, so
+ * concurrent games served by the same JVM never see each other's state.
+ * Instances are handed out by {@link GameStateStore}.
+ */
+public class GameState {
+    private static final EventLog EVENTS = EventLog.shared();
+    private static final String[] POSSIBLE_MOVES = { "up", "down", "left", "right" };
+    static final String ENGINE = System.getProperty("ENGINE", "parallel");
+    private static final OpeningBook BOOK = OpeningBook.fromProperties();
+    private static final PositionCache POSITIONS = PositionCache.fromProperties();
+    private static final int POSITION_CACHE_DEPTH = Integer.getInteger("POSITION_CACHE_DEPTH", 3);
+
+    private int[] criticalSnakes = new int[8];
+    private int criticalCount = 0;
+    private final Point headLocation = new Point();
+    private int targetFood = -1;
+    private volatile long lastTouched = System.currentTimeMillis();
+    private final OpponentModel opponents;
+    private final SearchEngine engine;
+    private final PositionCache positions;
+    private final double[] odds = new double[4];
+    private final SearchBoard searchBoard = new SearchBoard();
+    private final SpaceAnalyzer space = new SpaceAnalyzer();
+    private final PathFinder paths = new PathFinder();
+    private int you;
+    private final Histogram decisionTimes = new Histogram();
+    private volatile int timeout;
+    private SearchResult lastSearch;
+    private int searchedDepth;
+    private final String key;
+    private volatile int verbosity;
+    private final NetworkSlack slack = new NetworkSlack();
+    private volatile long bestSoFar = -1;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public GameState() {
+    	this("");
+    }
+    
+    /**
+     * @param key the key the game is stored under, which also tags its log events.
+     */
+    public GameState(String key) {
+    	this(key, true);
+    }
+    
+    /**
+     * @param shared false for a practice game, which neither uses nor adds to
+     *               the {@link PositionCache} and {@link OpponentModel} every
+     *               other game shares.
+     */
+    public GameState(String key, boolean shared) {
+    	this(key, shared, ENGINE);
+    }
+    
+    /**
+     * @param engine the {@link SearchEngine#forName(String) engine} to search
+     *               with, instead of the one the ENGINE system property picks.
+     */
+    public GameState(String key, boolean shared, String engine) {
+    	this.key = key;
+    	this.verbosity = EventLog.initialVerbosity(key);
+    	this.opponents = new OpponentModel(shared);
+    	this.engine = SearchEngine.forName(engine, opponents);
+    	this.positions = shared ? POSITIONS : null;
+    }
+
+    /**
+     * Decides the next move for this game.
+     * 
+     * The greedy food chasing below always runs first so there is an answer
+     * straight away. When a search engine is configured it then looks ahead until
+     * the deadline and its move wins if it finished at least one turn, unless
+     * the position is in the {@link OpeningBook}, whose move is played without
+     * searching. So is the move of a search any game in this process already
+     * made of the position, or a mirror image of it, if it looked at least as
+     * far ahead as this game's last search did, and at least
+     * POSITION_CACHE_DEPTH turns; see {@link PositionCache}. A game that hasn't
+     * searched yet always searches. Each answer is published as it is found,
+     * see {@link #getBestMove(int)}.
+     *
+     * @param moveRequest   the request for the current turn.
+     * @param deadlineNanos {@link System#nanoTime()} value by which we must have decided.
+     * @return one of "up", "down", "left" or "right".
+     */
+    public String nextMove(MoveRequest moveRequest, long deadlineNanos) {
+    	
+    	String move = quickMove(moveRequest);
+    	if(moveRequest.youIndex < 0)
+    		return move;
+    	if(BOOK != null) {
+    		int booked = BOOK.probe(searchBoard, you);
+    		if(booked >= 0 && searchBoard.isSafe(you, booked)) {
+    			EVENTS.log(EventLog.INFO, verbosity, key, "BOOK MOVE {}", booked);
+    			publish(moveRequest.turn, booked);
+    			return POSSIBLE_MOVES[booked];
+    		}//if
+    	}//if
+    	if(engine == null)
+    		return move;
+    	
+    	int turn = moveRequest.turn;
+    	long canonical = 0;
+    	if(positions != null) {
+    		canonical = OpeningBook.canonicalKey(searchBoard, you);
+    		// anything shallower than we can search ourselves would only play worse
+    		int cached = searchedDepth == 0 ? -1
+    				: positions.probe(canonical, Math.max(POSITION_CACHE_DEPTH, searchedDepth));
+    		if(cached >= 0 && searchBoard.isSafe(you, cached)) {
+    			EVENTS.log(EventLog.INFO, verbosity, key, "CACHED MOVE {}", cached);
+    			publish(turn, cached);
+    			return POSSIBLE_MOVES[cached];
+    		}//if
+    	}//if
+
+    	SearchResult result = engine.search(searchBoard, moveRequest.youIndex, deadlineNanos,
+    			(best, depth) -> publish(turn, best));
+    	lastSearch = result;
+    	EVENTS.log(EventLog.INFO, verbosity, key, "SEARCH DEPTH {} SCORE {} NODES {}", result.getDepth(), result.getScore(), result.getNodes());
+    	if(result.getDepth() > 0) {
+    		searchedDepth = result.getDepth();
+    		move = POSSIBLE_MOVES[result.getMove()];
+    		if(positions != null)
+    			positions.store(canonical, result.getMove(), result.getDepth(), result.getScore());
+    	}//if
+    	
+    	return move;
+    	
+    }//nextMove
+    
+    /**
+     * Decides the next move without searching, for when there is no time to.
+     */
+    public String quickMove(MoveRequest moveRequest) {
+    	
+    	timeout = moveRequest.timeout;
+    	lastSearch = null;
+    	if(moveRequest.youIndex >= 0) {
+    		// only the first turn, or one that doesn't follow on from the last, builds the board from scratch
+    		if(!searchBoard.update(moveRequest) && moveRequest.turn > 0)
+    			EVENTS.log(EventLog.DEBUG, verbosity, key, "BOARD REBUILT ON TURN {}", moveRequest.turn);
+    		you = moveRequest.youIndex;
+    		opponents.observe(moveRequest, searchBoard);
+    	}//if
+    	String move = greedyMove(moveRequest);
+    	publish(moveRequest.turn, indexOf(move));
+    	return move;
+    	
+    }//quickMove
+    
+    /**
+     * The best move found so far for a turn, for answering before the search
+     * behind it is done. Safe to call while another thread is deciding.
+     *
+     * @return the move, or null if nothing has been decided for the turn yet.
+     */
+    public String getBestMove(int turn) {
+    	long best = bestSoFar;
+    	if(best < 0 || (int) (best >>> 2) != turn)
+    		return null;
+    	return POSSIBLE_MOVES[(int) (best & 3)];
+    }
+    
+    private void publish(int turn, int move) {
+    	// turn and move in one write, so a reader can't see one without the other
+    	bestSoFar = ((long) turn << 2) | move;
+    }
+    
+    private static int indexOf(String move) {
+    	for(int i = 0; i < POSSIBLE_MOVES.length; i++)
+    		if(POSSIBLE_MOVES[i].equals(move))
+    			return i;
+    	return 0;
+    }
+    
+    private String greedyMove(MoveRequest moveRequest) {
+    	
+    	int turn = moveRequest.turn;
+    	if(moveRequest.youIndex < 0) {
+    		EVENTS.log(EventLog.WARN, verbosity, key, "NO SNAKE OF OURS IN THE REQUEST");
+    		return POSSIBLE_MOVES[0];
+    	}//if
+    	if(turn == 0) {
+        	criticalCount = 0;
+        	targetFood = -1;
+        	EVENTS.log(EventLog.INFO, verbosity, key, "INIT");
+    	}//if
+    	EVENTS.log(EventLog.DEBUG, verbosity, key, "@@@@@@@@@@@@@@@@@@@@ TURN #{} @@@@@@@@@@@@@@@@@@@@@ , {} ", turn, targetFood);
+    	
+    	getBodyAndHead(moveRequest);
+    	searchForCriticalSnakes(moveRequest);
+    	paths.update(searchBoard);
+    	
+    	int moveId = -1;
+    	targetFood = paths.closestFoodWon(searchBoard, you);
+    	if(targetFood >= 0) {
+    		EVENTS.log(EventLog.DEBUG, verbosity, key, "NEAREST FOOD LOCATED: {} , {} ", targetFood % searchBoard.getWidth(), targetFood / searchBoard.getWidth());
+    		moveId = paths.firstMove(you, targetFood);
+    	}//if
+    	
+    	if(moveId < 0 || !isSafe(moveId)) {
+    		// nothing worth eating, so keep our own tail in reach until something turns up
+    		moveId = paths.aStar(searchBoard, you, searchBoard.tailCell(you));
+    		EVENTS.log(EventLog.DEBUG, verbosity, key, "---FOLLOWING OUR TAIL--- {}", moveId);
+    	}//if
+    	
+    	if(moveId < 0 || !isSafe(moveId)) {
+    		EVENTS.log(EventLog.INFO, verbosity, key, "--emergency change of course---");
+    		return POSSIBLE_MOVES[findPossibleMove(moveRequest)];
+    	}//if
+    	
+    	int checkedId = accountForCompetingSnake(moveId, moveRequest);
+    	if(checkedId != moveId)
+    		EVENTS.log(EventLog.INFO, verbosity, key, "---EVADING COMPETING SNAKE---");
+    	return POSSIBLE_MOVES[checkedId];
+    	
+    }//greedyMove
+    
+    /**
+     * Dumps what this game was doing, used when a turn blows up.
+     */
+    public void logDiagnostics() {
+    	
+    	EVENTS.log(EventLog.WARN, verbosity, key, "CRITICAL SNAKES: {}", criticalCount);
+    	EVENTS.log(EventLog.WARN, verbosity, key, "@@@@@@@ TARGET FOOD {} @@@@@@@", targetFood);
+    	EVENTS.log(EventLog.WARN, verbosity, key, "HEAD IS AT: {} , {}  ", headLocation.x, headLocation.y);
+    	
+    }//logDiagnostics
+    
+    /**
+     * Marks the end of the game in the log.
+     */
+    public void logEnd() {
+    	
+    	EVENTS.log(EventLog.INFO, verbosity, key, "END");
+    	
+    }//logEnd
+    
+    public int getVerbosity() {
+    	return verbosity;
+    }
+    
+    /**
+     * @param verbosity the most detailed {@link EventLog} level to keep for this game.
+     */
+    public void setVerbosity(int verbosity) {
+    	this.verbosity = verbosity;
+    }
+    
+    /**
+     * @return the search behind the last move, or null if none ran.
+     */
+    SearchResult getLastSearch() {
+    	return lastSearch;
+    }
+    
+    /**
+     * @return the searches shared by every game, or null if there are none.
+     */
+    static PositionCache getPositionCache() {
+    	return POSITIONS;
+    }
+    
+    /**
+     * @return how long each move of this game took to decide, in nanoseconds.
+     */
+    Histogram getDecisionTimes() {
+    	return decisionTimes;
+    }
+    
+    /**
+     * @return the engine's timeout for this game in milliseconds, 0 before the first move.
+     */
+    int getTimeout() {
+    	return timeout;
+    }
+    
+    /**
+     * @return the round trip estimate that decides how long moves of this game may take.
+     */
+    NetworkSlack getSlack() {
+    	return slack;
+    }
+    
+    /**
+     * @return held while deciding a move, see {@link Snake.Handler}.
+     */
+    ReentrantLock getLock() {
+    	return lock;
+    }
+    
+    long getLastTouched() {
+    	return lastTouched;
+    }
+    
+    void touch() {
+    	lastTouched = System.currentTimeMillis();
+    }
+    
+    private void getBodyAndHead(MoveRequest js) {
+    		
+    		headLocation.x = js.headX(js.youIndex);
+    		headLocation.y = js.headY(js.youIndex);
+    	
+    }//getBodyAndHead
+    
+    private boolean bodyPartExistsOnThisPoint(int direc) {
+    	
+    	int destination = searchBoard.destination(you, direc);
+    	return destination >= 0 && !searchBoard.isEmpty(destination);
+    	
+    }//bodyPartExistsOnThisPoint
+    
+    /**
+     * @return true if the move runs into a wall, which on a wrapped board none does.
+     */
+    private boolean leavesBoard(int direc) {
+    	
+    	return searchBoard.destination(you, direc) < 0;
+    	
+    }//leavesBoard
+    
+    private static int getDistance(Point start, int endX, int endY) {
+    	
+    	int xDistance = Math.abs(start.x - endX);
+    	int yDistance = Math.abs(start.y - endY);
+    	
+    	return xDistance + yDistance;
+    	
+    }//getDistance
+    
+    private int findPossibleMove(MoveRequest js) {
+    	
+//      String[] possibleMoves = { "up", "down", "left", "right" };
+    	
+    	if(!(bodyPartExistsOnThisPoint(3)) && !(surrounded(3)) && !leavesBoard(3)) {
+    		
+    	
+    		return 3;
+    		
+    		
+    	}else if(!(bodyPartExistsOnThisPoint(2)) && !(surrounded(2)) && !leavesBoard(2)) {
+    		
+    		return 2;
+    	
+    	}else if(!(bodyPartExistsOnThisPoint(0)) && !(surrounded(0)) && !leavesBoard(0)) {
+    		
+    	
+    		return 0;
+    		
+    	}else if (!(bodyPartExistsOnThisPoint(1)) && !(surrounded(1)) && !leavesBoard(1)) {
+    		
+    		
+    		return 1;
+    		
+    	}//if
+    	
+    	EVENTS.log(EventLog.INFO, verbosity, key, "----I DON'T KNOW WHAT I'M DOING----");
+    	
+    	return roomiestMove();
+    	
+    }//findPossibleMove
+    
+    private void searchForCriticalSnakes(MoveRequest js) {
+    	
+    	criticalCount = 0;
+    	if(criticalSnakes.length < js.snakeCount)
+    		criticalSnakes = new int[js.snakeCount];
+    	
+    	for(int i = 0; i < js.snakeCount; i++) {
+    		
+    		if(js.bodyLength[i] == 0)
+    			continue;
+    		
+    		if(getDistance(headLocation, js.headX(i), js.headY(i)) <= 4
+    				|| getDistance(headLocation, js.tailX(i), js.tailY(i)) <= 4) {
+    			
+    			criticalSnakes[criticalCount++] = i;
+    			
+    		}//if
+    		
+    	}//for
+    	
+    }//searchForCriticalSnakes
+    
+    private int accountForCompetingSnake(int moveId, MoveRequest info) {
+    	
+    	int contested = searchBoard.destination(you, moveId);
+    	if(contested < 0)
+    		return moveId;
+    	for(int i = 0; i < criticalCount; i++) {
+    		
+    		int snake = criticalSnakes[i];
+    		if(snake != info.youIndex && paths.distance(snake, contested) == 1) {
+    			
+    			if(info.bodyLength[snake] >= info.bodyLength[info.youIndex] && mightMoveTo(snake, contested)) {
+    				
+    				if(moveId == 0) 
+    					return findPossibleMove(false, true, true, true);
+    				else if(moveId == 1)
+    					return findPossibleMove(true, false, true, true);
+    				else if(moveId == 2)
+    					return findPossibleMove(true, true, false, true);
+    				else if(moveId == 3)
+    					return findPossibleMove(true, true, true, false);
+    				
+    			}//if
+    			
+    		}//if
+    		
+    	}//for
+    	
+    	return moveId;
+    	
+    }//lookForCompetingSnake
+    
+    /**
+     * @return false only if the opponent model is sure enough the snake won't
+     *         take the square to leave it out of the search too.
+     */
+    private boolean mightMoveTo(int snake, int cell) {
+    	
+    	if(!opponents.predict(searchBoard, snake, odds))
+    		return true;
+    	for(int move = 0; move < 4; move++)
+    		if(searchBoard.destination(snake, move) == cell)
+    			return odds[move] >= OpponentModel.PRUNE_BELOW;
+    	return true;
+    	
+    }//mightMoveTo
+    
+    
+    private int findPossibleMove(boolean upAvailable, boolean downAvailable, boolean leftAvailable, boolean rightAvailable) {
+    	
+//      String[] possibleMoves = { "up", "down", "left", "right" };
+    	
+    	if(!(bodyPartExistsOnThisPoint(3)) && rightAvailable) {
+    		
+    		if(!leavesBoard(3)) {
+    			return 3;
+    		}//if
+    		
+    	}else if(!(bodyPartExistsOnThisPoint(2)) && leftAvailable) {
+    		
+    		if(!leavesBoard(2)) {
+    			return 2;
+    		}
+    	}else if(!(bodyPartExistsOnThisPoint(0)) && upAvailable) {
+    		
+    		if(!leavesBoard(0)){
+    			return 0;
+    		}
+    	}else if (!(bodyPartExistsOnThisPoint(1)) && downAvailable) {
+    		
+    		if(!leavesBoard(1)) {
+    			return 1;
+    		}
+    	}//if
+    	
+    	return 0;
+    	
+    }//findPossibleMove
+    
+    /**
+     * @return true if the move stays on the board, doesn't hit a body that will
+     *         still be there and doesn't lead into a pocket.
+     */
+    private boolean isSafe(int direction) {
+    	
+    	return searchBoard.isSafe(you, direction) && !surrounded(direction);
+    	
+    }//isSafe
+    
+    /**
+     * @return true if the move leads into a pocket with less room than our body
+     *         needs, counting the tails that move out of the way.
+     */
+    private boolean surrounded(int direction) {
+    	
+    	int length = searchBoard.getLength(you);
+    	return space.reachableAfterMove(searchBoard, you, direction, length) < length;
+    	
+    }//surrounded
+    
+    /**
+     * Last resort when every move looks bad: the one with the most room behind it.
+     */
+    private int roomiestMove() {
+    	
+    	int best = 0;
+    	int bestRoom = -1;
+    	for(int direction = 0; direction < 4; direction++) {
+    		
+    		int room = space.reachableAfterMove(searchBoard, you, direction, searchBoard.cells);
+    		if(room > bestRoom) {
+    			best = direction;
+    			bestRoom = room;
+    		}//if
+    		
+    	}//for
+    	
+    	return best;
+    	
+    }//roomiestMove
+
+}//ENDOFCLASS
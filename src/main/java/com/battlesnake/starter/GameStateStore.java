@@ -0,0 +1,135 @@
+package com.battlesnake.starter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps one {@link GameState} per game and per snake.
+ * 
+ * States are created on /start and dropped on /end. Games that never send
+ * /end (engine crashes, dropped connections) are evicted once the store is
+ * over capacity or once they have been idle for longer than the idle limit.
+ */
+public class GameStateStore {
+
+    /**
+     * Enough for a few dozen arenas at once.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * A game that has not moved in this long is assumed to be over.
+     */
+    public static final long DEFAULT_IDLE_MILLIS = 10 * 60 * 1000L;
+
+    private final int capacity;
+    private final long idleMillis;
+    private final boolean shared;
+    private final String engine;
+    private final LinkedHashMap<String, GameState> games;
+
+    public GameStateStore() {
+        this(DEFAULT_CAPACITY, DEFAULT_IDLE_MILLIS);
+    }
+
+    public GameStateStore(int capacity, long idleMillis) {
+        this(capacity, idleMillis, true);
+    }
+
+    /**
+     * @param shared false for a store of practice games, see {@link GameState#GameState(String, boolean)}.
+     */
+    public GameStateStore(int capacity, long idleMillis, boolean shared) {
+        this(capacity, idleMillis, shared, GameState.ENGINE);
+    }
+
+    /**
+     * @param engine the engine every game searches with, see {@link GameState#GameState(String, boolean, String)}.
+     */
+    public GameStateStore(int capacity, long idleMillis, boolean shared, String engine) {
+        this.capacity = capacity;
+        this.idleMillis = idleMillis;
+        this.shared = shared;
+        this.engine = engine;
+        // access ordered so the eldest entry is always the least recently used game
+        this.games = new LinkedHashMap<String, GameState>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GameState> eldest) {
+                return size() > GameStateStore.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Builds the key a game is stored under.
+     *
+     * @param gameId the engine's game id.
+     * @param snakeId our snake's id in that game.
+     * @return the store key.
+     */
+    public static String key(String gameId, String snakeId) {
+        return gameId + ':' + snakeId;
+    }
+
+    /**
+     * Creates a fresh state for a game, replacing anything left under the same key.
+     */
+    public synchronized GameState start(String key) {
+        evictIdle();
+        GameState state = new GameState(key, shared, engine);
+        games.put(key, state);
+        return state;
+    }
+
+    /**
+     * Looks up the state of a running game, creating one if the game was never
+     * started here (e.g. the dyno restarted mid game).
+     */
+    public synchronized GameState get(String key) {
+        GameState state = games.get(key);
+        if (state == null) {
+            evictIdle();
+            state = new GameState(key, shared, engine);
+            games.put(key, state);
+        }
+        state.touch();
+        return state;
+    }
+
+    /**
+     * Looks up the state of a running game without creating or touching it.
+     */
+    public synchronized GameState peek(String key) {
+        return games.get(key);
+    }
+
+    /**
+     * Drops the state of a finished game.
+     *
+     * @return the state that was dropped, or null if the game wasn't here.
+     */
+    public synchronized GameState end(String key) {
+        return games.remove(key);
+    }
+
+    public synchronized int size() {
+        return games.size();
+    }
+
+    /**
+     * Visits every game without touching it, holding the store's lock throughout.
+     */
+    public synchronized void forEach(BiConsumer<String, GameState> action) {
+        for (Map.Entry<String, GameState> e : games.entrySet())
+            action.accept(e.getKey(), e.getValue());
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        games.values().removeIf(state -> state.getLastTouched() < cutoff);
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative longs, laid out like HdrHistogram.
+ *
+ * Values below 64 get a bucket each. Above that every power of two is split
+ * into 32 equal buckets, so a recorded value is known to within about 3% of
+ * itself whatever its size, and a few thousand counters cover anything up to
+ * {@link #MAX_VALUE}. Recording is one atomic increment plus the running
+ * total and maximum, so request threads can record without taking a lock.
+ */
+public class Histogram {
+
+    /**
+     * Larger values are recorded as this, a little over 18 minutes in nanoseconds.
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR = SUB_BUCKETS * 2;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        else if (value > MAX_VALUE)
+            value = MAX_VALUE;
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long seen;
+        while (value > (seen = max.get()) && !max.compareAndSet(seen, value))
+            ;
+    }//record
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99.
+     * @return the highest value that falls in the same bucket as the value at
+     *         that quantile, or 0 if nothing was recorded.
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highestInBucket(i), max.get());
+        }//for
+        return max.get();
+    }//getValueAtQuantile
+
+    static int index(long value) {
+        if (value < LINEAR)
+            return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR + (magnitude - SUB_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    static long highestInBucket(int index) {
+        if (index < LINEAR)
+            return index;
+        int magnitude = (index - LINEAR) / SUB_BUCKETS + SUB_BITS + 1;
+        int shift = magnitude - SUB_BITS;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+}
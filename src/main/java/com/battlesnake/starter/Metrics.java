@@ -0,0 +1,190 @@
+package com.battlesnake.starter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings and search statistics for every route, served on /metrics in the
+ * Prometheus text format.
+ *
+ * Each route keeps a {@link Histogram} for parsing, handling and serializing
+ * its requests; /move also keeps the decision time, search depth and nodes per
+ * second. Games still in the {@link GameStateStore} are listed one by one with
+ * their own decision time percentiles next to the engine timeout, so a game
+ * drifting towards a timeout shows up while it is still being played.
+ *
+ * Recording never locks or allocates. Everything is kept since startup; rates
+ * and windows are left to whatever scrapes the endpoint.
+ */
+public class Metrics {
+
+    public static final String[] ROUTES = { "/start", "/ping", "/move", "/end" };
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final double SECONDS = 1e-9;
+
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private final Route other = new Route();
+    private final Histogram decision = new Histogram();
+    private final Histogram depth = new Histogram();
+    private final Histogram nodesPerSecond = new Histogram();
+    private final AtomicLong overTimeout = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+
+    public Metrics() {
+        for (String route : ROUTES)
+            routes.put(route, new Route());
+    }
+
+    public void parsed(String route, long nanos) {
+        route(route).parse.record(nanos);
+    }
+
+    /**
+     * A request was answered, {@code nanos} after it arrived.
+     */
+    public void handled(String route, long nanos) {
+        Route r = route(route);
+        r.handle.record(nanos);
+        r.requests.incrementAndGet();
+    }
+
+    public void serialized(String route, long nanos) {
+        route(route).serialize.record(nanos);
+    }
+
+    public void failed(String route) {
+        route(route).errors.incrementAndGet();
+    }
+
+    /**
+     * A move was answered without searching because the compute pool was full.
+     */
+    public void shed() {
+        shed.incrementAndGet();
+    }
+
+    /**
+     * A move was answered with the best so far because deciding it ran past the
+     * time the answer was due.
+     */
+    public void late() {
+        late.incrementAndGet();
+    }
+
+    /**
+     * A move was decided.
+     *
+     * @param nanos   time spent deciding.
+     * @param result  the search that ran, or null if none did.
+     * @param timeout the game's timeout in milliseconds, 0 if unknown.
+     */
+    public void decided(long nanos, SearchResult result, int timeout) {
+        decision.record(nanos);
+        if (timeout > 0 && nanos > timeout * 1_000_000L)
+            overTimeout.incrementAndGet();
+        if (result == null)
+            return;
+        depth.record(result.getDepth());
+        if (nanos > 0)
+            nodesPerSecond.record((long) (result.getNodes() / (nanos * SECONDS)));
+    }//decided
+
+    /**
+     * @return everything recorded so far, in the Prometheus text format.
+     */
+    public String scrape(GameStateStore games) {
+        StringBuilder out = new StringBuilder(4096);
+        header(out, "snake_requests_total", "counter", "Requests answered, by route.");
+        for (Map.Entry<String, Route> e : routes.entrySet())
+            sample(out, "snake_requests_total", "route", e.getKey(), e.getValue().requests.get());
+        header(out, "snake_errors_total", "counter", "Requests that failed, by route.");
+        for (Map.Entry<String, Route> e : routes.entrySet())
+            sample(out, "snake_errors_total", "route", e.getKey(), e.getValue().errors.get());
+
+        header(out, "snake_parse_seconds", "summary", "Time to read a request body.");
+        for (Map.Entry<String, Route> e : routes.entrySet())
+            summary(out, "snake_parse_seconds", "route=\"" + e.getKey() + "\"", e.getValue().parse, SECONDS);
+        header(out, "snake_handle_seconds", "summary", "Time from arrival to answer, serialization excluded.");
+        for (Map.Entry<String, Route> e : routes.entrySet())
+            summary(out, "snake_handle_seconds", "route=\"" + e.getKey() + "\"", e.getValue().handle, SECONDS);
+        header(out, "snake_serialize_seconds", "summary", "Time to write a response body.");
+        for (Map.Entry<String, Route> e : routes.entrySet())
+            summary(out, "snake_serialize_seconds", "route=\"" + e.getKey() + "\"", e.getValue().serialize, SECONDS);
+
+        header(out, "snake_decision_seconds", "summary", "Time to decide a move.");
+        summary(out, "snake_decision_seconds", null, decision, SECONDS);
+        header(out, "snake_search_depth", "summary", "Deepest search iteration completed per move.");
+        summary(out, "snake_search_depth", null, depth, 1);
+        header(out, "snake_search_nodes_per_second", "summary", "Search speed per move.");
+        summary(out, "snake_search_nodes_per_second", null, nodesPerSecond, 1);
+        header(out, "snake_moves_over_timeout_total", "counter", "Moves decided after the game's timeout.");
+        sample(out, "snake_moves_over_timeout_total", null, null, overTimeout.get());
+        header(out, "snake_moves_shed_total", "counter", "Moves answered without a search because the compute pool was full.");
+        sample(out, "snake_moves_shed_total", null, null, shed.get());
+        header(out, "snake_moves_late_total", "counter", "Moves answered with the best so far because deciding them ran late.");
+        sample(out, "snake_moves_late_total", null, null, late.get());
+
+        header(out, "snake_events_dropped_total", "counter", "Log events dropped because the buffer was full.");
+        sample(out, "snake_events_dropped_total", null, null, EventLog.shared().getDropped());
+
+        header(out, "snake_games", "gauge", "Games being played.");
+        sample(out, "snake_games", null, null, games.size());
+        header(out, "snake_game_decision_seconds", "summary", "Time to decide a move, per running game.");
+        games.forEach((key, state) -> summary(out, "snake_game_decision_seconds",
+                "game=\"" + escape(key) + "\"", state.getDecisionTimes(), SECONDS));
+        header(out, "snake_game_timeout_seconds", "gauge", "The engine timeout of each running game.");
+        games.forEach((key, state) -> sample(out, "snake_game_timeout_seconds", "game", escape(key),
+                state.getTimeout() / 1000.0));
+        header(out, "snake_game_slack_seconds", "gauge", "Time kept back from the timeout of each running game for the network.");
+        games.forEach((key, state) -> sample(out, "snake_game_slack_seconds", "game", escape(key),
+                state.getSlack().slack(state.getTimeout()) * SECONDS));
+        return out.toString();
+    }//scrape
+
+    private Route route(String route) {
+        Route r = routes.get(route);
+        return r == null ? other : r;
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, double sample) {
+        out.append(name);
+        if (label != null)
+            out.append('{').append(label).append("=\"").append(value).append("\"}");
+        out.append(' ').append(sample).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, Histogram histogram, double scale) {
+        String prefix = labels == null ? "{" : "{" + labels + ",";
+        for (double q : QUANTILES) {
+            out.append(name).append(prefix).append("quantile=\"").append(q).append("\"} ")
+                    .append(histogram.getValueAtQuantile(q) * scale).append('\n');
+        }//for
+        String suffix = labels == null ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(suffix).append(' ').append(histogram.getSum() * scale).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(histogram.getCount()).append('\n');
+    }//summary
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Everything kept for one route.
+     */
+    private static class Route {
+        final Histogram parse = new Histogram();
+        final Histogram handle = new Histogram();
+        final Histogram serialize = new Histogram();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+    }
+
+}
@@ -0,0 +1,481 @@
+package com.battlesnake.starter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monte Carlo tree search, for games with many snakes, where the joint replies
+ * of alpha-beta grow too fast to look far ahead.
+ *
+ * All snakes move at once, so every node keeps, for each snake, the visits and
+ * total reward of each of its moves, and each snake picks its own move by UCB1
+ * as if the others weren't there (decoupled UCT). Together the picks make the
+ * joint move that leads to a child. From a new leaf the game is played on with
+ * random safe moves for a few turns, and each snake's result is added to the
+ * moves it made on the way down: 0 for dying, and for surviving mostly its
+ * share of the board by {@link SpaceAnalyzer#voronoi}, since random rollouts
+ * too short to end a game say little about who is winning it.
+ *
+ * Nodes live in an arena of primitive arrays owned by the engine, so a tree
+ * costs no objects and its memory is reused every turn. The arena takes no
+ * more than a game's share of the search memory, like a game's
+ * {@link TranspositionTable} would, see {@link #nodesFor(long, int)}. Nodes don't keep a
+ * position; every iteration plays the joint moves out from the root on one
+ * board per thread and undoes them all when it is done. When the
+ * next turn's position follows from the last root by one joint move, the child
+ * for that move becomes the new root, keeping what was learnt below it, and the
+ * rest of the arena is freed.
+ *
+ * The threads of the pool shared with {@link ParallelSearch} grow the same
+ * tree. Counters are atomic, and a move is counted as visited the moment it is
+ * picked while its reward is only added once the rollout is back, so a thread
+ * arriving meanwhile sees it as a loss and tries another (virtual loss).
+ */
+public class MonteCarloSearch implements SearchEngine {
+
+    /**
+     * Most nodes in a game's arena, from the MCTS_NODES system property.
+     */
+    static final int NODES = Integer.getInteger("MCTS_NODES", 1 << 15);
+
+    static final int MIN_NODES = 1 << 10;
+
+    /**
+     * A node's key, sibling, first child, visits, free list slot and mark.
+     */
+    private static final int NODE_BYTES = 8 + 4 + 4 + 4 + 4 + 1;
+
+    /**
+     * A move's visits and reward sum, for each snake's four moves at a node.
+     */
+    private static final int MOVE_BYTES = 4 + 8;
+
+    /**
+     * Joint moves are keyed with two bits per snake.
+     */
+    static final int MAX_SNAKES = 32;
+
+    private static final int MAX_TREE_DEPTH = 64;
+    private static final int ROLLOUT_TURNS = 3;
+    private static final int SCALE = 1000;
+    private static final double EXPLORATION = 0.5;
+    private static final int REPORT_EVERY = 512;
+
+    private int capacity;
+    private int stride;
+    private long[] keys = new long[0];
+    private int[] sibling = new int[0];
+    private AtomicIntegerArray firstChild;
+    private AtomicIntegerArray nodeVisits;
+    private AtomicIntegerArray visits;
+    private AtomicLongArray rewards;
+    private int[] available = new int[0];
+    private int availableCount;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private boolean[] marked = new boolean[0];
+
+    private final SearchBoard previousRoot = new SearchBoard();
+    private int rootNode = -1;
+    private final Worker[] workers;
+
+    private int you;
+    private int livingAtRoot;
+    private long deadline;
+
+    public MonteCarloSearch() {
+        workers = new Worker[Math.max(1, ParallelSearch.THREADS)];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = new Worker(i);
+    }
+
+    @Override
+    public SearchResult search(SearchBoard root, int you, long deadlineNanos, Progress progress) {
+        if (root.snakeCount > MAX_SNAKES || !root.alive[you])
+            return new SearchResult(0, 0, 0, 0);
+        this.you = you;
+        this.deadline = deadlineNanos;
+        livingAtRoot = 1 + root.opponentsAlive(you);
+        prepare(root);
+
+        if (workers.length == 1) {
+            workers[0].grow(root, progress);
+        } else {
+            List<RecursiveAction> tasks = new ArrayList<>(workers.length);
+            for (Worker worker : workers)
+                tasks.add(new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        worker.grow(root, progress);
+                    }
+                });
+            ParallelSearch.POOL.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }//if
+        previousRoot.copyFrom(root);
+
+        long iterations = 0;
+        int deepest = 0;
+        for (Worker worker : workers) {
+            iterations += worker.iterations;
+            deepest = Math.max(deepest, worker.deepest);
+        }
+        int move = bestMove();
+        int base = rootNode * stride + you * 4;
+        int tried = visits.get(base + move);
+        int score = tried == 0 ? 0 : (int) (rewards.get(base + move) / tried);
+        return new SearchResult(move, score, deepest, iterations);
+    }//search
+
+    /**
+     * @return our most visited move at the root, the one with the most
+     *         evidence behind it.
+     */
+    private int bestMove() {
+        int base = rootNode * stride + you * 4;
+        int best = 0;
+        for (int move = 1; move < 4; move++)
+            if (visits.get(base + move) > visits.get(base + best))
+                best = move;
+        return best;
+    }
+
+    /**
+     * @return how many iterations went through the root, including ones kept
+     *         from earlier turns.
+     */
+    int rootVisits() {
+        return rootNode < 0 ? 0 : nodeVisits.get(rootNode);
+    }
+
+    /**
+     * @param budget bytes the arena may take.
+     * @param stride move slots a node has, four for each snake.
+     * @return the nodes an arena can have in the budget, from
+     *         {@link #MIN_NODES} to {@link #NODES}.
+     */
+    static int nodesFor(long budget, int stride) {
+        long nodes = budget / (NODE_BYTES + (long) stride * MOVE_BYTES);
+        return (int) Math.max(Math.min(MIN_NODES, NODES), Math.min(NODES, nodes));
+    }
+
+    /**
+     * Sizes the arena and finds the root: the child the game went to if it
+     * follows on from the last search, or else a fresh tree.
+     */
+    private void prepare(SearchBoard root) {
+        int width = Math.max(root.snakeCount * 4, stride);
+        int nodes = Math.max(2, nodesFor(TranspositionTable.GAME_BUDGET, width));
+        if (firstChild == null || width != stride || capacity != nodes) {
+            capacity = nodes;
+            stride = width;
+            keys = new long[capacity];
+            sibling = new int[capacity];
+            firstChild = new AtomicIntegerArray(capacity);
+            nodeVisits = new AtomicIntegerArray(capacity);
+            visits = new AtomicIntegerArray(capacity * stride);
+            rewards = new AtomicLongArray(capacity * stride);
+            available = new int[capacity];
+            marked = new boolean[capacity];
+            rootNode = -1;
+        }//if
+
+        int next = rootNode >= 0 ? followOn(root) : -1;
+        if (next >= 0) {
+            keep(next);
+        } else {
+            for (int node = 0; node < capacity; node++)
+                available[node] = node;
+            availableCount = capacity;
+            allocated.set(0);
+            rootNode = allocate();
+        }
+    }//prepare
+
+    /**
+     * @return the node the game went to from the last root, or -1 if the
+     *         position doesn't follow on by one turn with every snake alive.
+     */
+    private int followOn(SearchBoard root) {
+        SearchBoard previous = previousRoot;
+        if (root.turn != previous.turn + 1 || root.snakeCount != previous.snakeCount
+                || root.width != previous.width || root.height != previous.height)
+            return -1;
+        long key = 0;
+        for (int s = 0; s < root.snakeCount; s++) {
+            if (!previous.alive[s] || !root.alive[s])
+                return -1;
+            int made = -1;
+            for (int move = 0; move < 4; move++)
+                if (previous.destination(s, move) == root.headCell(s))
+                    made = move;
+            if (made < 0)
+                return -1;
+            key |= (long) made << (2 * s);
+        }//for
+        return childOf(rootNode, key, false);
+    }//followOn
+
+    /**
+     * Makes a node the root, freeing every node outside its subtree.
+     */
+    private void keep(int node) {
+        Arrays.fill(marked, false);
+        // the available list doubles as the stack, it is rebuilt below anyway
+        int[] stack = available;
+        int size = 0;
+        stack[size++] = node;
+        while (size > 0) {
+            int at = stack[--size];
+            marked[at] = true;
+            for (int child = firstChild.get(at); child >= 0; child = sibling[child])
+                stack[size++] = child;
+        }//while
+        availableCount = 0;
+        for (int i = 0; i < capacity; i++)
+            if (!marked[i])
+                available[availableCount++] = i;
+        allocated.set(0);
+        rootNode = node;
+    }//keep
+
+    /**
+     * @return a cleared node, or -1 if the arena is full.
+     */
+    private int allocate() {
+        int k = allocated.getAndIncrement();
+        if (k >= availableCount)
+            return -1;
+        int node = available[k];
+        firstChild.set(node, -1);
+        nodeVisits.set(node, 0);
+        for (int i = node * stride, end = i + stride; i < end; i++) {
+            visits.set(i, 0);
+            rewards.set(i, 0);
+        }
+        return node;
+    }//allocate
+
+    /**
+     * @param create add the child if there isn't one yet and there is room.
+     * @return the child a joint move leads to, or -1.
+     */
+    private int childOf(int node, long key, boolean create) {
+        int fresh = -1;
+        while (true) {
+            int head = firstChild.get(node);
+            // if another thread added it meanwhile, a fresh node is lost until the arena is rebuilt
+            for (int child = head; child >= 0; child = sibling[child])
+                if (keys[child] == key)
+                    return child;
+            if (!create)
+                return -1;
+            if (fresh < 0) {
+                fresh = allocate();
+                if (fresh < 0)
+                    return -1;
+                keys[fresh] = key;
+            }
+            sibling[fresh] = head;
+            if (firstChild.compareAndSet(node, head, fresh))
+                return fresh;
+        }//while
+    }//childOf
+
+    private boolean over(SearchBoard board) {
+        return !board.alive[you] || (livingAtRoot > 1 && board.opponentsAlive(you) == 0);
+    }
+
+    /**
+     * One thread's share of the search, with its own scratch board and path.
+     */
+    private final class Worker {
+        private final int index;
+        private final SearchBoard board = new SearchBoard();
+        private final int[] path = new int[MAX_TREE_DEPTH];
+        private final long[] pathKeys = new long[MAX_TREE_DEPTH];
+        private final long[] pathMovers = new long[MAX_TREE_DEPTH];
+        private int[] moves = new int[8];
+        private double[] reward = new double[8];
+        private final int[] safe = new int[4];
+        private final SpaceAnalyzer space = new SpaceAnalyzer();
+        private long lastMovers;
+        private long random;
+        private long iterations;
+        private int deepest;
+
+        Worker(int index) {
+            this.index = index;
+            this.random = 0x9E3779B97F4A7C15L * (index + 1);
+        }
+
+        /**
+         * Runs iterations until the deadline.
+         */
+        void grow(SearchBoard root, Progress progress) {
+            if (moves.length < root.snakeCount) {
+                moves = new int[root.snakeCount];
+                reward = new double[root.snakeCount];
+            }
+            iterations = 0;
+            deepest = 0;
+            board.copyFrom(root);
+            do {
+                iterate();
+                iterations++;
+                if (progress != null && index == 0 && iterations % REPORT_EVERY == 0)
+                    progress.improved(bestMove(), deepest);
+            } while (System.nanoTime() < deadline);
+        }//grow
+
+        private void iterate() {
+            int node = rootNode;
+            int depth = 0;
+            nodeVisits.incrementAndGet(node);
+            while (depth < MAX_TREE_DEPTH && !over(board)) {
+                path[depth] = node;
+                pathKeys[depth] = select(node);
+                pathMovers[depth] = lastMovers;
+                depth++;
+                board.applyJointMove(moves);
+                int child = childOf(node, pathKeys[depth - 1], true);
+                if (child < 0)
+                    break;
+                node = child;
+                // the first arrival at a node only plays it out, the next one expands it
+                if (nodeVisits.incrementAndGet(child) == 1)
+                    break;
+            }//while
+            deepest = Math.max(deepest, depth);
+
+            int played = depth + rollout();
+            score();
+            for (int turn = 0; turn < played; turn++)
+                board.undo();
+            for (int d = 0; d < depth; d++) {
+                int base = path[d] * stride;
+                long key = pathKeys[d];
+                long movers = pathMovers[d];
+                for (int s = 0; s < board.snakeCount; s++)
+                    if ((movers & (1L << s)) != 0)
+                        rewards.addAndGet(base + s * 4 + (int) ((key >>> (2 * s)) & 3), (long) (reward[s] * SCALE));
+            }//for
+        }//iterate
+
+        /**
+         * Picks every living snake's move at a node by UCB1, counting each pick
+         * as a visit straight away.
+         *
+         * @return the joint move's key; which snakes moved is left in {@link #lastMovers}.
+         */
+        private long select(int node) {
+            double logVisits = Math.log(nodeVisits.get(node));
+            long key = 0;
+            long movers = 0;
+            for (int s = 0; s < board.snakeCount; s++) {
+                moves[s] = 0;
+                if (!board.alive[s])
+                    continue;
+                int base = node * stride + s * 4;
+                int best = -1;
+                double bestValue = -1;
+                // unvisited moves tie, so start from a different one each time
+                int start = nextInt(4);
+                for (int i = 0; i < 4; i++) {
+                    int move = (start + i) & 3;
+                    if (!board.isSafe(s, move))
+                        continue;
+                    int tried = visits.get(base + move);
+                    double value = tried == 0 ? Double.MAX_VALUE
+                            : rewards.get(base + move) / (double) (SCALE * tried)
+                                    + EXPLORATION * Math.sqrt(logVisits / tried);
+                    if (value > bestValue) {
+                        bestValue = value;
+                        best = move;
+                    }
+                }//for
+                if (best < 0)
+                    best = start;
+                visits.incrementAndGet(base + best);
+                moves[s] = best;
+                key |= (long) best << (2 * s);
+                movers |= 1L << s;
+            }//for
+            lastMovers = movers;
+            return key;
+        }//select
+
+        /**
+         * Plays on with random safe moves for a few turns.
+         *
+         * @return the turns played.
+         */
+        private int rollout() {
+            int turn = 0;
+            for (; turn < ROLLOUT_TURNS && !over(board); turn++) {
+                for (int s = 0; s < board.snakeCount; s++) {
+                    if (!board.alive[s])
+                        continue;
+                    int count = 0;
+                    for (int move = 0; move < 4; move++)
+                        if (board.isSafe(s, move))
+                            safe[count++] = move;
+                    moves[s] = count == 0 ? 0 : safe[nextInt(count)];
+                }//for
+                board.applyJointMove(moves);
+            }//for
+            return turn;
+        }//rollout
+
+        /**
+         * Fills in every snake's reward for where the rollout ended: nothing for
+         * the dead, and for the living mostly their share of the board, less
+         * when hungry, more when fewer rivals are left.
+         */
+        private void score() {
+            int living = 0;
+            for (int s = 0; s < board.snakeCount; s++)
+                if (board.alive[s])
+                    living++;
+            space.voronoi(board, you);
+            int most = 1;
+            for (int s = 0; s < board.snakeCount; s++)
+                if (board.alive[s])
+                    most = Math.max(most, space.getTerritory(s));
+            double rivalsGone = livingAtRoot > 1 ? (livingAtRoot - living) / (double) (livingAtRoot - 1) : 0;
+            for (int s = 0; s < board.snakeCount; s++) {
+                if (!board.alive[s]) {
+                    reward[s] = 0;
+                    continue;
+                }
+                int territory = space.getTerritory(s);
+                // less room than body, the pocket closes before the tail frees it
+                double share = territory < board.length[s] ? 0 : territory / (double) most;
+                reward[s] = 0.3 + 0.5 * share + 0.1 * board.health[s] / SearchBoard.MAX_HEALTH + 0.1 * rivalsGone;
+            }//for
+        }//score
+
+        /**
+         * xorshift, each worker with its own state so rollouts share nothing.
+         */
+        private int nextInt(int bound) {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return (int) ((random >>> 33) % bound);
+        }
+    }
+
+}
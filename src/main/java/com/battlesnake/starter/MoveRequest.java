@@ -0,0 +1,189 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Flat, reusable view of a /move request.
+ * 
+ * Everything is kept in primitive arrays so a decoded request holds no JSON tree
+ * and no per-segment objects. Snake bodies are stored back to back in
+ * {@link #bodyX}/{@link #bodyY}; snake {@code i} owns the segments from
+ * {@code bodyStart[i]} to {@code bodyStart[i] + bodyLength[i] - 1}, head first.
+ * Instances are meant to be reused, see {@link MoveRequestDecoder}.
+ */
+public class MoveRequest {
+
+    String gameId = "";
+    int timeout;
+    Ruleset ruleset = Ruleset.STANDARD;
+    int hazardDamage = Ruleset.HAZARD_DAMAGE;
+    int turn;
+    int width;
+    int height;
+
+    int snakeCount;
+    int youIndex = -1;
+    String[] snakeIds = new String[8];
+    String[] snakeNames = new String[8];
+    int[] health = new int[8];
+    int[] bodyStart = new int[8];
+    int[] bodyLength = new int[8];
+
+    int segmentCount;
+    int[] bodyX = new int[128];
+    int[] bodyY = new int[128];
+
+    int foodCount;
+    int[] foodX = new int[16];
+    int[] foodY = new int[16];
+
+    int hazardCount;
+    int[] hazardX = new int[16];
+    int[] hazardY = new int[16];
+
+    /**
+     * Forgets the previous request so the arrays can be filled again.
+     */
+    public void clear() {
+        gameId = "";
+        timeout = 0;
+        ruleset = Ruleset.STANDARD;
+        hazardDamage = Ruleset.HAZARD_DAMAGE;
+        turn = 0;
+        width = 0;
+        height = 0;
+        Arrays.fill(snakeIds, 0, snakeCount, null);
+        Arrays.fill(snakeNames, 0, snakeCount, null);
+        snakeCount = 0;
+        youIndex = -1;
+        segmentCount = 0;
+        foodCount = 0;
+        hazardCount = 0;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public Ruleset getRuleset() {
+        return ruleset;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSnakeCount() {
+        return snakeCount;
+    }
+
+    /**
+     * @return the index of our own snake, or -1 if the request did not say who we are.
+     */
+    public int getYouIndex() {
+        return youIndex;
+    }
+
+    /**
+     * @return our snake's id, or an empty string if the request did not say who we are.
+     */
+    public String getYouId() {
+        return youIndex < 0 ? "" : snakeIds[youIndex];
+    }
+
+    public int headX(int snake) {
+        return bodyX[bodyStart[snake]];
+    }
+
+    public int headY(int snake) {
+        return bodyY[bodyStart[snake]];
+    }
+
+    public int tailX(int snake) {
+        return bodyX[bodyStart[snake] + bodyLength[snake] - 1];
+    }
+
+    public int tailY(int snake) {
+        return bodyY[bodyStart[snake] + bodyLength[snake] - 1];
+    }
+
+    int addSnake() {
+        if (snakeCount == snakeIds.length) {
+            int size = snakeCount * 2;
+            snakeIds = Arrays.copyOf(snakeIds, size);
+            snakeNames = Arrays.copyOf(snakeNames, size);
+            health = Arrays.copyOf(health, size);
+            bodyStart = Arrays.copyOf(bodyStart, size);
+            bodyLength = Arrays.copyOf(bodyLength, size);
+        }
+        snakeIds[snakeCount] = "";
+        snakeNames[snakeCount] = "";
+        health[snakeCount] = 0;
+        bodyStart[snakeCount] = segmentCount;
+        bodyLength[snakeCount] = 0;
+        return snakeCount++;
+    }
+
+    void addSegment(int snake, int x, int y) {
+        if (segmentCount == bodyX.length) {
+            bodyX = Arrays.copyOf(bodyX, segmentCount * 2);
+            bodyY = Arrays.copyOf(bodyY, segmentCount * 2);
+        }
+        bodyX[segmentCount] = x;
+        bodyY[segmentCount] = y;
+        segmentCount++;
+        bodyLength[snake]++;
+    }
+
+    void addFood(int x, int y) {
+        if (foodCount == foodX.length) {
+            foodX = Arrays.copyOf(foodX, foodCount * 2);
+            foodY = Arrays.copyOf(foodY, foodCount * 2);
+        }
+        foodX[foodCount] = x;
+        foodY[foodCount] = y;
+        foodCount++;
+    }
+
+    void addHazard(int x, int y) {
+        if (hazardCount == hazardX.length) {
+            hazardX = Arrays.copyOf(hazardX, hazardCount * 2);
+            hazardY = Arrays.copyOf(hazardY, hazardCount * 2);
+        }
+        hazardX[hazardCount] = x;
+        hazardY[hazardCount] = y;
+        hazardCount++;
+    }
+
+    /**
+     * Drops a snake and its segments, shifting the later snakes down by one.
+     */
+    void removeSnake(int snake) {
+        int start = bodyStart[snake];
+        int length = bodyLength[snake];
+        int tail = segmentCount - start - length;
+        System.arraycopy(bodyX, start + length, bodyX, start, tail);
+        System.arraycopy(bodyY, start + length, bodyY, start, tail);
+        segmentCount -= length;
+        int after = snakeCount - snake - 1;
+        System.arraycopy(snakeIds, snake + 1, snakeIds, snake, after);
+        System.arraycopy(snakeNames, snake + 1, snakeNames, snake, after);
+        System.arraycopy(health, snake + 1, health, snake, after);
+        System.arraycopy(bodyStart, snake + 1, bodyStart, snake, after);
+        System.arraycopy(bodyLength, snake + 1, bodyLength, snake, after);
+        snakeCount--;
+        snakeIds[snakeCount] = null;
+        snakeNames[snakeCount] = null;
+        for (int i = snake; i < snakeCount; i++)
+            bodyStart[i] -= length;
+    }
+
+}
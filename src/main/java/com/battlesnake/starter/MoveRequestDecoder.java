@@ -0,0 +1,202 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads a /move request straight off Jackson's token stream into a
+ * {@link MoveRequest}, without building a {@code JsonNode} tree first.
+ * 
+ * Unknown fields are skipped so newer engine versions don't break the snake.
+ */
+public class MoveRequestDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Decodes a raw request body.
+     *
+     * @param body the request body as sent by the engine.
+     * @param into the request to fill, its previous contents are cleared.
+     * @return {@code into}, for chaining.
+     */
+    public MoveRequest decode(byte[] body, MoveRequest into) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            return decode(parser, into);
+        }
+    }
+
+    /**
+     * Decodes from any parser, e.g. one walking an already parsed tree.
+     */
+    public MoveRequest decode(JsonParser parser, MoveRequest into) throws IOException {
+        into.clear();
+        if (parser.currentToken() == null)
+            parser.nextToken();
+        expect(parser, JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("game")) {
+                readGame(parser, into);
+            } else if (field.equals("turn")) {
+                into.turn = parser.getValueAsInt();
+            } else if (field.equals("board")) {
+                readBoard(parser, into);
+            } else if (field.equals("you")) {
+                into.youIndex = readSnake(parser, into);
+            } else {
+                parser.skipChildren();
+            }
+        }//while
+
+        dropDuplicateYou(into);
+        return into;
+    }//decode
+
+    private static void readGame(JsonParser parser, MoveRequest into) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("id"))
+                into.gameId = parser.getValueAsString("");
+            else if (field.equals("timeout"))
+                into.timeout = parser.getValueAsInt();
+            else if (field.equals("ruleset") && parser.currentToken() == JsonToken.START_OBJECT)
+                readRuleset(parser, into);
+            else
+                parser.skipChildren();
+        }//while
+    }//readGame
+
+    /**
+     * Reads the mode and the one setting the board needs; the spawn rates and
+     * the royale shrink only matter to whoever runs the game.
+     */
+    private static void readRuleset(JsonParser parser, MoveRequest into) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("name")) {
+                into.ruleset = Ruleset.forName(parser.getValueAsString(""));
+            } else if (field.equals("settings") && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String setting = parser.getCurrentName();
+                    parser.nextToken();
+                    if (setting.equals("hazardDamagePerTurn"))
+                        into.hazardDamage = parser.getValueAsInt(Ruleset.HAZARD_DAMAGE);
+                    else
+                        parser.skipChildren();
+                }//while
+            } else {
+                parser.skipChildren();
+            }
+        }//while
+    }//readRuleset
+
+    private static void readBoard(JsonParser parser, MoveRequest into) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("width")) {
+                into.width = parser.getValueAsInt();
+            } else if (field.equals("height")) {
+                into.height = parser.getValueAsInt();
+            } else if (field.equals("food")) {
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    long point = readPoint(parser);
+                    into.addFood((int) (point >> 32), (int) point);
+                }
+            } else if (field.equals("hazards")) {
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    long point = readPoint(parser);
+                    into.addHazard((int) (point >> 32), (int) point);
+                }
+            } else if (field.equals("snakes")) {
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT)
+                    readSnake(parser, into);
+            } else {
+                parser.skipChildren();
+            }
+        }//while
+    }//readBoard
+
+    private static int readSnake(JsonParser parser, MoveRequest into) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        int snake = into.addSnake();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("id")) {
+                into.snakeIds[snake] = parser.getValueAsString("");
+            } else if (field.equals("name")) {
+                into.snakeNames[snake] = parser.getValueAsString("");
+            } else if (field.equals("health")) {
+                into.health[snake] = parser.getValueAsInt();
+            } else if (field.equals("body")) {
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    long point = readPoint(parser);
+                    into.addSegment(snake, (int) (point >> 32), (int) point);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }//while
+        return snake;
+    }//readSnake
+
+    /**
+     * Reads an {"x":..,"y":..} object, packed as x in the high and y in the low
+     * 32 bits so no point object is needed.
+     */
+    private static long readPoint(JsonParser parser) throws IOException {
+        int x = 0;
+        int y = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("x"))
+                x = parser.getValueAsInt();
+            else if (field.equals("y"))
+                y = parser.getValueAsInt();
+            else
+                parser.skipChildren();
+        }//while
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }//readPoint
+
+    /**
+     * "you" repeats one of the board snakes. Keep the board copy so every snake
+     * appears once, and point {@code youIndex} at it.
+     */
+    private static void dropDuplicateYou(MoveRequest into) {
+        int you = into.youIndex;
+        if (you < 0)
+            return;
+        for (int i = 0; i < into.snakeCount; i++) {
+            if (i != you && into.snakeIds[i].equals(into.snakeIds[you])) {
+                into.removeSnake(you);
+                into.youIndex = i > you ? i - 1 : i;
+                return;
+            }
+        }//for
+    }//dropDuplicateYou
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token)
+            throw new IOException("Expected " + token + " but found " + parser.currentToken()
+                    + " at " + parser.getCurrentLocation());
+    }//expect
+
+}
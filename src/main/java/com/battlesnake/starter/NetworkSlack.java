@@ -0,0 +1,89 @@
+package com.battlesnake.starter;
+
+/**
+ * Works out how much of a game's timeout is lost on the way to and from the
+ * engine, and so how long we really have to answer a move.
+ *
+ * The engine's timeout runs from when it sends a request until it has our
+ * answer, but we only see the part in between. What we can see is the gap
+ * from sending one answer to the next request arriving: that is a full round
+ * trip plus however long the engine waited for the other snakes. The smallest
+ * gap of the last {@link #WINDOW} turns is taken as the round trip, since on
+ * those turns nobody kept the engine waiting, and {@link #MARGIN_NANOS} is
+ * added on top for jitter.
+ *
+ * Until a game has a gap to go by, 30% of its timeout is kept back, which is
+ * what the snake always used to keep. Either way at least the margin and at
+ * most half the timeout is kept back.
+ *
+ * Methods lock the instance rather than the game, so a request thread can
+ * read its budget while a search of the same game is still running.
+ */
+public class NetworkSlack {
+
+    public static final long MARGIN_NANOS = Long.getLong("SLACK_MARGIN_MS", 15L) * 1_000_000L;
+
+    static final int WINDOW = 16;
+
+    private final long[] gaps = new long[WINDOW];
+    private int count;
+    private long repliedAt;
+    private boolean waiting;
+
+    /**
+     * A move request arrived.
+     *
+     * @param nanos {@link System#nanoTime()} on arrival.
+     */
+    public synchronized void arrived(long nanos) {
+        if (waiting) {
+            gaps[count % WINDOW] = nanos - repliedAt;
+            count++;
+            waiting = false;
+        }
+    }
+
+    /**
+     * We answered a move.
+     *
+     * @param nanos {@link System#nanoTime()} when the answer was handed back.
+     */
+    public synchronized void replied(long nanos) {
+        repliedAt = nanos;
+        waiting = true;
+    }
+
+    /**
+     * @param timeoutMillis the game's timeout, 0 or less if the engine didn't send one.
+     * @return the time to keep back from the timeout, in nanoseconds.
+     */
+    public synchronized long slack(int timeoutMillis) {
+        long timeout = timeoutMillis * 1_000_000L;
+        long slack = count == 0 ? timeout * 3 / 10 : roundTrip() + MARGIN_NANOS;
+        return Math.max(MARGIN_NANOS, Math.min(slack, timeout / 2));
+    }
+
+    /**
+     * @param timeoutMillis the game's timeout, 0 or less if the engine didn't send one.
+     * @return how long after a request arrives its answer must be handed back,
+     *         in nanoseconds, or {@link Long#MAX_VALUE} without a timeout.
+     */
+    public long budget(int timeoutMillis) {
+        if (timeoutMillis <= 0)
+            return Long.MAX_VALUE;
+        return timeoutMillis * 1_000_000L - slack(timeoutMillis);
+    }
+
+    /**
+     * @return the round trip the slack is based on, or -1 before the first one.
+     */
+    public synchronized long roundTrip() {
+        if (count == 0)
+            return -1;
+        long least = Long.MAX_VALUE;
+        for (int i = 0, n = Math.min(count, WINDOW); i < n; i++)
+            least = Math.min(least, gaps[i]);
+        return Math.max(0, least);
+    }
+
+}
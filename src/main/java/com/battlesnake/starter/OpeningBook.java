@@ -0,0 +1,322 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Best moves worked out ahead of time for positions that keep coming up, such
+ * as the first turns of a game on a standard board, so they cost no search.
+ *
+ * Positions are looked up by a key that doesn't change when the board is
+ * mirrored or turned, so one entry serves every symmetric copy: the key is
+ * worked out for each of the board's symmetries and the smallest one is used,
+ * with the move stored as it is in that orientation. Opponents count as a set,
+ * so their order doesn't matter either.
+ *
+ * The book is a file of entries sorted by key, mapped into memory when the
+ * snake starts. Looking a position up is a binary search over the mapping, so
+ * the book takes no heap and needs no loading however big it gets. The layout,
+ * all numbers big-endian:
+ *
+ * <pre>
+ * int    MAGIC
+ * int    VERSION
+ * long   entry count
+ * then per entry, sorted by key:
+ * long   key
+ * int    score   the search's score for the move
+ * short  depth   turns the search looked ahead
+ * byte   move    0 up, 1 down, 2 left, 3 right, in the key's orientation
+ * byte   unused
+ * </pre>
+ *
+ * Books are built and extended by {@link OpeningBookGenerator}, and used by the
+ * snake when the BOOK_FILE system property names one.
+ */
+public class OpeningBook {
+
+    public static final int MAGIC = 0x534e4b42;
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    private static final Logger LOG = LoggerFactory.getLogger(OpeningBook.class);
+
+    private static final long US = 0x1000000000L;
+    private static final long THEM = 0x2000000000L;
+    private static final long FOOD = 0x3000000000L;
+    private static final long HEALTH = 0x4000000000L;
+    private static final long SIZE = 0x5000000000L;
+    private static final long HAZARD = 0x6000000000L;
+    private static final long RULES = 0x7000000000L;
+    private static final long DAMAGE = 0x8000000000L;
+
+    private final ByteBuffer entries;
+    private final int count;
+
+    OpeningBook(ByteBuffer entries, int count) {
+        this.entries = entries;
+        this.count = count;
+    }
+
+    /**
+     * Maps a book file into memory.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != MAGIC)
+                throw new IOException("Not an opening book: " + file);
+            if (mapped.getInt(4) != VERSION)
+                throw new IOException("Unsupported opening book version " + mapped.getInt(4) + ": " + file);
+            long count = mapped.getLong(8);
+            if (count < 0 || HEADER_BYTES + count * ENTRY_BYTES > mapped.limit())
+                throw new IOException("Opening book cut short: " + file);
+            return new OpeningBook(mapped, (int) count);
+        }
+    }//open
+
+    /**
+     * @return the book named by the BOOK_FILE system property, or null if none is
+     *         set or it can't be read.
+     */
+    public static OpeningBook fromProperties() {
+        String file = System.getProperty("BOOK_FILE");
+        if (file == null)
+            return null;
+        try {
+            OpeningBook book = open(Paths.get(file));
+            LOG.info("Opening book {} has {} positions", file, book.size());
+            return book;
+        } catch (IOException e) {
+            LOG.warn("Could not open the opening book, playing without it", e);
+            return null;
+        }
+    }//fromProperties
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Looks a position up.
+     *
+     * @param you the index of our snake on the board.
+     * @return the book's move for us, or -1 if the position isn't in the book.
+     */
+    public int probe(SearchBoard board, int you) {
+        long canonical = canonicalKey(board, you);
+        int at = find(key(canonical));
+        if (at < 0)
+            return -1;
+        return fromOrientation(entries.get(HEADER_BYTES + at * ENTRY_BYTES + 14), transform(canonical));
+    }//probe
+
+    /**
+     * @return the entry's index, or -1.
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long found = entries.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (found < key)
+                low = mid + 1;
+            else if (found > key)
+                high = mid - 1;
+            else
+                return mid;
+        }//while
+        return -1;
+    }//find
+
+    /**
+     * Calls back with every entry in key order, for extending a book.
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < count; i++) {
+            int at = HEADER_BYTES + i * ENTRY_BYTES;
+            consumer.accept(entries.getLong(at), entries.get(at + 14), entries.getShort(at + 12),
+                    entries.getInt(at + 8));
+        }
+    }
+
+    /**
+     * Receives the entries of {@link #forEach(EntryConsumer)}.
+     */
+    public interface EntryConsumer {
+        void accept(long key, int move, int depth, int score);
+    }
+
+    /**
+     * One move of a book being written.
+     */
+    public static class Entry {
+        public final int move;
+        public final int depth;
+        public final int score;
+
+        public Entry(int move, int depth, int score) {
+            this.move = move;
+            this.depth = depth;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Writes a book. The map's order is the file's order, so it must be sorted
+     * by key as a signed long, which is what a {@code TreeMap<Long, Entry>} does.
+     */
+    public static void write(Path file, SortedMap<Long, Entry> book) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + book.size() * ENTRY_BYTES);
+        out.putInt(MAGIC).putInt(VERSION).putLong(book.size());
+        for (Map.Entry<Long, Entry> e : book.entrySet()) {
+            Entry entry = e.getValue();
+            out.putLong(e.getKey()).putInt(entry.score).putShort((short) entry.depth)
+                    .put((byte) entry.move).put((byte) 0);
+        }//for
+        out.flip();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining())
+                channel.write(out);
+        }
+        // a snake that has the old book mapped keeps reading the old file
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }//write
+
+    /**
+     * Works out the key of a position in every orientation and picks the
+     * smallest.
+     *
+     * @return the key with the orientation it was found in packed into the low
+     *         3 bits; split with {@link #key(long)} and {@link #transform(long)}.
+     */
+    static long canonicalKey(SearchBoard board, int you) {
+        int transforms = board.width == board.height ? 8 : 4;
+        long best = Long.MAX_VALUE;
+        for (int t = 0; t < transforms; t++)
+            best = Math.min(best, (key(board, you, t) & ~7L) | t);
+        return best;
+    }//canonicalKey
+
+    static long key(long canonical) {
+        return canonical & ~7L;
+    }
+
+    static int transform(long canonical) {
+        return (int) (canonical & 7);
+    }
+
+    /**
+     * @return our move as it is in an orientation.
+     */
+    static int toOrientation(int move, int transform) {
+        int dx = SearchBoard.DX[move];
+        int dy = SearchBoard.DY[move];
+        int tx;
+        int ty;
+        switch (transform) {
+        case 1: tx = -dx; ty = dy; break;
+        case 2: tx = dx; ty = -dy; break;
+        case 3: tx = -dx; ty = -dy; break;
+        case 4: tx = dy; ty = dx; break;
+        case 5: tx = -dy; ty = dx; break;
+        case 6: tx = dy; ty = -dx; break;
+        case 7: tx = -dy; ty = -dx; break;
+        default: tx = dx; ty = dy; break;
+        }
+        for (int m = 0; m < 4; m++)
+            if (SearchBoard.DX[m] == tx && SearchBoard.DY[m] == ty)
+                return m;
+        throw new IllegalArgumentException("Bad move " + move);
+    }//toOrientation
+
+    /**
+     * @return the move that {@link #toOrientation(int, int)} turns into {@code move}.
+     */
+    static int fromOrientation(int move, int transform) {
+        for (int m = 0; m < 4; m++)
+            if (toOrientation(m, transform) == move)
+                return m;
+        throw new IllegalArgumentException("Bad move " + move);
+    }
+
+    /**
+     * Hashes a position as seen in one orientation. Unlike the search's
+     * {@link Zobrist} hash this doesn't depend on snake order or on any random
+     * table, so keys stay the same from run to run.
+     */
+    private static long key(SearchBoard board, int you, int transform) {
+        long key = mix(SIZE | (board.width << 8) | board.height);
+        // squares connect differently on a wrapped board, so the mode is part of the position
+        if (board.rules != Ruleset.STANDARD)
+            key ^= mix(RULES | (board.rules.getName().hashCode() & 0xFFFFFFFFL));
+        // and so is what a hazard costs, which games can set for themselves
+        if (board.hazardDamage != Ruleset.HAZARD_DAMAGE)
+            key ^= mix(DAMAGE | (board.hazardDamage & 0xFFFFFFFFL));
+        for (int s = 0; s < board.snakeCount; s++) {
+            if (!board.alive[s])
+                continue;
+            long side = s == you ? US : THEM;
+            long snake = mix(HEALTH | side | board.health[s]);
+            for (int k = 0; k < board.length[s]; k++)
+                snake ^= mix(side | ((long) k << 16) | orient(board, board.segment(s, k), transform));
+            // opponents are added up, so their order doesn't matter
+            key += mix(snake);
+        }//for
+        for (int cell = 0; cell < board.cells; cell++)
+            if (board.food[cell])
+                key ^= mix(FOOD | orient(board, cell, transform));
+        for (int cell = 0; cell < board.cells; cell++)
+            if (board.hazards[cell] > 0)
+                key ^= mix(HAZARD | ((long) board.hazards[cell] << 16) | orient(board, cell, transform));
+        return key;
+    }//key
+
+    /**
+     * @return where a square ends up in an orientation. Transforms 4 to 7 swap
+     *         the axes and are only used on square boards.
+     */
+    private static int orient(SearchBoard board, int cell, int transform) {
+        int n = board.width;
+        int x = cell % n;
+        int y = cell / n;
+        int w = board.width - 1;
+        int h = board.height - 1;
+        switch (transform) {
+        case 1: return y * n + (w - x);
+        case 2: return (h - y) * n + x;
+        case 3: return (h - y) * n + (w - x);
+        case 4: return x * n + y;
+        case 5: return x * n + (h - y);
+        case 6: return (w - x) * n + y;
+        case 7: return (w - x) * n + (h - y);
+        default: return cell;
+        }
+    }//orient
+
+    /**
+     * SplitMix64's finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds or extends an {@link OpeningBook} by playing the first turns of
+ * seeded games with {@link Simulator} and searching every position met on the
+ * way with {@link ParanoidSearch}:
+ *
+ * <pre>
+ * java -cp ... com.battlesnake.starter.OpeningBookGenerator --out book.bin \
+ *     --games 200 --snakes 4 --size 11 --turns 6 --budget 1000
+ * </pre>
+ *
+ * Every snake plays the book's move, so the games follow the lines the book
+ * recommends and the positions searched are the ones worth having. An
+ * existing book is read first and only positions it doesn't have, or had
+ * searched less deeply than {@code --min-depth}, are searched again, so running
+ * it again with more games or more turns extends the book. Searches are given
+ * far longer than a real turn allows, which is the point of doing them ahead.
+ */
+public class OpeningBookGenerator {
+
+    private static final String[] MOVES = { "up", "down", "left", "right" };
+
+    private final TreeMap<Long, OpeningBook.Entry> book = new TreeMap<>();
+    private final long budgetNanos;
+    private final int minDepth;
+    private int searched;
+
+    /**
+     * @param budgetNanos how long to search each position for.
+     * @param minDepth    the depth a search must reach to go in the book.
+     */
+    public OpeningBookGenerator(long budgetNanos, int minDepth) {
+        this.budgetNanos = budgetNanos;
+        this.minDepth = minDepth;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path out = null;
+        int games = 100;
+        int snakes = 4;
+        int size = 11;
+        int turns = 6;
+        long budget = 1000;
+        int minDepth = 2;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "--out": out = Paths.get(value); break;
+            case "--games": games = Integer.parseInt(value); break;
+            case "--snakes": snakes = Integer.parseInt(value); break;
+            case "--size": size = Integer.parseInt(value); break;
+            case "--turns": turns = Integer.parseInt(value); break;
+            case "--budget": budget = Long.parseLong(value); break;
+            case "--min-depth": minDepth = Integer.parseInt(value); break;
+            case "--seed": seed = Long.parseLong(value); break;
+            default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }//for
+        if (out == null) {
+            System.err.println("usage: OpeningBookGenerator --out <book file> [--games n] [--snakes n] [--size n]"
+                    + " [--turns n] [--budget ms] [--min-depth n] [--seed n]");
+            System.exit(1);
+        }
+
+        OpeningBookGenerator generator = new OpeningBookGenerator(budget * 1_000_000L, minDepth);
+        if (Files.exists(out))
+            generator.extend(OpeningBook.open(out));
+        int before = generator.getBook().size();
+        Simulator simulator = new Simulator(size, size, 500);
+        for (int g = 0; g < games; g++)
+            generator.play(simulator, "book-" + seed + "-" + g, snakes, seed * 1_000_003L + g, turns);
+        OpeningBook.write(out, generator.getBook());
+        System.out.printf("positions %d (%d new), %d searched%n", generator.getBook().size(),
+                generator.getBook().size() - before, generator.getSearched());
+        System.exit(0);
+    }//main
+
+    /**
+     * Starts from the entries of an existing book.
+     */
+    public void extend(OpeningBook existing) {
+        existing.forEach((key, move, depth, score) -> book.put(key, new OpeningBook.Entry(move, depth, score)));
+    }
+
+    /**
+     * Plays the first turns of one game, adding every position met to the book.
+     */
+    public void play(Simulator simulator, String gameId, int snakes, long seed, int turns) throws IOException {
+        List<Simulator.Player> players = new ArrayList<>();
+        for (int s = 0; s < snakes; s++)
+            players.add(new BookPlayer());
+        simulator.play(gameId, players, seed, turns);
+    }
+
+    public SortedMap<Long, OpeningBook.Entry> getBook() {
+        return book;
+    }
+
+    /**
+     * @return how many positions were searched so far.
+     */
+    public int getSearched() {
+        return searched;
+    }
+
+    /**
+     * Looks every position up in the book being built, searching the ones it
+     * doesn't have yet, and plays the book's move.
+     */
+    private class BookPlayer implements Simulator.Player {
+        private final MoveRequestDecoder decoder = new MoveRequestDecoder();
+        private final MoveRequest request = new MoveRequest();
+        private final SearchBoard board = new SearchBoard();
+        private final ParanoidSearch engine = new ParanoidSearch();
+
+        @Override
+        public void start(byte[] body) {
+        }
+
+        @Override
+        public String move(byte[] body) throws IOException {
+            decoder.decode(body, request);
+            if (request.youIndex < 0)
+                return MOVES[0];
+            board.load(request);
+            int you = request.youIndex;
+            long canonical = OpeningBook.canonicalKey(board, you);
+            int transform = OpeningBook.transform(canonical);
+            long key = OpeningBook.key(canonical);
+
+            OpeningBook.Entry known = book.get(key);
+            if (known == null || known.depth < minDepth) {
+                SearchResult result = engine.search(board, you, System.nanoTime() + budgetNanos);
+                searched++;
+                if (result.getDepth() >= minDepth && (known == null || result.getDepth() > known.depth)) {
+                    known = new OpeningBook.Entry(OpeningBook.toOrientation(result.getMove(), transform),
+                            result.getDepth(), result.getScore());
+                    book.put(key, known);
+                } else if (known == null) {
+                    return MOVES[result.getMove()];
+                }
+            }//if
+            return MOVES[OpeningBook.fromOrientation(known.move, transform)];
+        }//move
+
+        @Override
+        public void end(byte[] body) {
+        }
+    }
+
+}
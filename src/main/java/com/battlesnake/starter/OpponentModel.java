@@ -0,0 +1,318 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Learns how each opponent tends to move, so the search can skip the replies
+ * a snake would hardly ever make and look deeper at the ones it would.
+ *
+ * Every turn the previous position is compared with the new one to see which
+ * move each opponent made, and that move is compared with the other safe moves
+ * it had on a few features: getting closer to food, getting closer to another
+ * head, ending up on the edge of the board, offering a head-to-head to a
+ * shorter snake or to one at least as long, and going straight on. For each
+ * feature a snake keeps how often it had the choice and how often it took it.
+ *
+ * The counts are kept per snake name, so they carry over to the next game
+ * against the same snake; snakes without a name are known by id, and so for one
+ * game only. They are read into this game's own rates once a turn, so
+ * {@link #predict(SearchBoard, int, double[])} reads nothing shared and can be
+ * called from any number of search threads.
+ *
+ * One instance per game, owned by {@link GameState}. Practice games keep
+ * what they learn to themselves.
+ */
+public class OpponentModel {
+
+    static final int FOOD = 0;
+    static final int CLOSER = 1;
+    static final int EDGE = 2;
+    static final int ATTACK = 3;
+    static final int RISK = 4;
+    static final int STRAIGHT = 5;
+    static final int FEATURES = 6;
+    private static final int UNSAFE = 0xFF;
+
+    /**
+     * Turns a snake must have been watched before its predictions are used.
+     */
+    static final int MIN_OBSERVATIONS = 8;
+
+    /**
+     * Replies less likely than this are left out of the search, from the
+     * OPPONENT_PRUNE system property.
+     */
+    public static final double PRUNE_BELOW = Double.parseDouble(System.getProperty("OPPONENT_PRUNE", "0.05"));
+
+    private static final int MAX_SNAKES_KNOWN = 4096;
+    private static final ConcurrentHashMap<String, Tendencies> KNOWN = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Tendencies> known;
+    private final SearchBoard previous = new SearchBoard();
+    private int previousTurn = -1;
+    private Tendencies[] previousSnakes = new Tendencies[8];
+    private Tendencies[] snakes = new Tendencies[8];
+    private double[] rates = new double[8 * FEATURES];
+    private boolean[] confident = new boolean[8];
+    private int[] foodDistance = new int[0];
+    private int[] foodQueue = new int[0];
+    private final int[] masks = new int[4];
+
+    public OpponentModel() {
+        this(true);
+    }
+
+    /**
+     * @param shared whether to learn alongside every other game, or alone.
+     */
+    public OpponentModel(boolean shared) {
+        this.known = shared ? KNOWN : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Learns from the moves made since the last turn and gets ready to predict
+     * the next ones. Called once a turn, before searching.
+     *
+     * @param request the request the board was loaded from, for the snakes' names.
+     * @param board   the position this turn.
+     */
+    public void observe(MoveRequest request, SearchBoard board) {
+        if (snakes.length < board.snakeCount) {
+            snakes = new Tendencies[board.snakeCount];
+            rates = new double[board.snakeCount * FEATURES];
+            confident = new boolean[board.snakeCount];
+        }
+        for (int s = 0; s < board.snakeCount; s++)
+            snakes[s] = s == request.youIndex || !board.alive[s] ? null : tendencies(request, s);
+
+        if (previousTurn >= 0 && previousTurn + 1 == board.turn && previous.width == board.width
+                && previous.height == board.height)
+            learn(board);
+
+        for (int s = 0; s < board.snakeCount; s++)
+            confident[s] = snakes[s] != null && snakes[s].read(rates, s * FEATURES);
+        previous.copyFrom(board);
+        previousTurn = board.turn;
+        if (previousSnakes.length < snakes.length)
+            previousSnakes = new Tendencies[snakes.length];
+        System.arraycopy(snakes, 0, previousSnakes, 0, board.snakeCount);
+        measureFood(board);
+    }//observe
+
+    /**
+     * Works out how likely each move of a snake is.
+     *
+     * @param into filled with the probability of every move, 0 for the unsafe ones.
+     * @return false, leaving {@code into} alone, if the snake hasn't been
+     *         watched for long enough to say.
+     */
+    public boolean predict(SearchBoard board, int snake, double[] into) {
+        if (snake >= board.snakeCount || snake >= confident.length || !confident[snake])
+            return false;
+        // the four masks in one int, a byte each, so nothing is allocated
+        int packed = 0;
+        int safe = 0;
+        for (int move = 0; move < 4; move++) {
+            int mask = features(board, snake, move);
+            packed |= (mask < 0 ? UNSAFE : mask) << (move * 8);
+            if (mask >= 0)
+                safe++;
+        }//for
+        if (safe == 0) {
+            Arrays.fill(into, 0.25);
+            return true;
+        }
+
+        double total = 0;
+        for (int move = 0; move < 4; move++) {
+            int mask = (packed >>> (move * 8)) & 0xFF;
+            if (mask == UNSAFE) {
+                into[move] = 0;
+                continue;
+            }
+            double weight = 1;
+            for (int f = 0; f < FEATURES; f++) {
+                int having = 0;
+                for (int other = 0; other < 4; other++) {
+                    int otherMask = (packed >>> (other * 8)) & 0xFF;
+                    if (otherMask != UNSAFE && has(otherMask, f))
+                        having++;
+                }//for
+                // a feature every safe move has, or none has, says nothing
+                if (having == 0 || having == safe)
+                    continue;
+                double rate = rates[snake * FEATURES + f];
+                weight *= has(mask, f) ? rate / having : (1 - rate) / (safe - having);
+            }//for
+            into[move] = weight;
+            total += weight;
+        }//for
+        for (int move = 0; move < 4; move++)
+            into[move] /= total;
+        return true;
+    }//predict
+
+    /**
+     * @return true once a snake has been watched for long enough to predict.
+     */
+    public boolean isConfident(int snake) {
+        return snake < confident.length && confident[snake];
+    }
+
+    private void learn(SearchBoard board) {
+        for (int s = 0; s < board.snakeCount && s < previous.snakeCount; s++) {
+            Tendencies tendencies = previousSnakes[s];
+            if (tendencies == null || tendencies != snakes[s] || !board.alive[s] || !previous.alive[s])
+                continue;
+            int made = -1;
+            for (int move = 0; move < 4; move++) {
+                masks[move] = features(previous, s, move);
+                if (previous.destination(s, move) == board.headCell(s))
+                    made = move;
+            }//for
+            if (made >= 0 && masks[made] >= 0)
+                tendencies.learn(masks, made);
+        }//for
+    }//learn
+
+    /**
+     * @return the features of a move as a bit mask, or -1 if it isn't safe.
+     */
+    int features(SearchBoard board, int snake, int move) {
+        if (!board.isSafe(snake, move))
+            return -1;
+        int width = board.width;
+        int head = board.headCell(snake);
+        int to = board.destination(snake, move);
+        int x = to % width;
+        int y = to / width;
+        int mask = 0;
+        if (foodDistance.length == board.cells && foodDistance[to] < foodDistance[head])
+            mask |= 1 << FOOD;
+        if (!board.getRules().wraps() && (x == 0 || y == 0 || x == width - 1 || y == board.height - 1))
+            mask |= 1 << EDGE;
+        if (move == board.heading(snake))
+            mask |= 1 << STRAIGHT;
+
+        int nearestFrom = Integer.MAX_VALUE;
+        int nearestTo = Integer.MAX_VALUE;
+        for (int other = 0; other < board.snakeCount; other++) {
+            if (other == snake || !board.alive[other])
+                continue;
+            int otherHead = board.headCell(other);
+            int distance = board.distance(to, otherHead);
+            nearestTo = Math.min(nearestTo, distance);
+            nearestFrom = Math.min(nearestFrom, board.distance(head, otherHead));
+            if (distance == 1)
+                mask |= board.length[other] < board.length[snake] ? 1 << ATTACK : 1 << RISK;
+        }//for
+        if (nearestTo < nearestFrom)
+            mask |= 1 << CLOSER;
+        return mask;
+    }//features
+
+    private static boolean has(int mask, int feature) {
+        return (mask & (1 << feature)) != 0;
+    }
+
+    /**
+     * Fills in the walking distance to the nearest food from every square,
+     * ignoring bodies, with one breadth-first fill out from all the food at
+     * once. It steps through the board's own neighbours, so it wraps round
+     * where the board does.
+     */
+    private void measureFood(SearchBoard board) {
+        if (foodDistance.length != board.cells) {
+            foodDistance = new int[board.cells];
+            foodQueue = new int[board.cells];
+        }
+        int far = board.width + board.height;
+        int head = 0;
+        int tail = 0;
+        for (int cell = 0; cell < board.cells; cell++) {
+            foodDistance[cell] = board.hasFood(cell) ? 0 : far;
+            if (foodDistance[cell] == 0)
+                foodQueue[tail++] = cell;
+        }//for
+        while (head < tail) {
+            int cell = foodQueue[head++];
+            int d = foodDistance[cell] + 1;
+            for (int move = 0; move < 4; move++) {
+                int next = board.neighbour(cell, move);
+                if (next >= 0 && foodDistance[next] > d) {
+                    foodDistance[next] = d;
+                    foodQueue[tail++] = next;
+                }
+            }//for
+        }//while
+    }//measureFood
+
+    private Tendencies tendencies(MoveRequest request, int snake) {
+        String name = request.snakeNames[snake];
+        String key = name == null || name.isEmpty() ? "id:" + request.snakeIds[snake] : "name:" + name;
+        Tendencies tendencies = known.get(key);
+        if (tendencies != null)
+            return tendencies;
+        // a crude bound, a server meeting this many different snakes can afford to relearn them
+        if (known.size() >= MAX_SNAKES_KNOWN)
+            known.clear();
+        return known.computeIfAbsent(key, k -> new Tendencies());
+    }//tendencies
+
+    /**
+     * Forgets every snake, for tests.
+     */
+    static void forgetAll() {
+        KNOWN.clear();
+    }
+
+    /**
+     * @return the snakes whose tendencies every game shares.
+     */
+    static int knownCount() {
+        return KNOWN.size();
+    }
+
+    /**
+     * What one snake has been seen doing, shared by every game it plays in.
+     */
+    private static class Tendencies {
+        private final int[] offered = new int[FEATURES];
+        private final int[] taken = new int[FEATURES];
+        private int observed;
+
+        synchronized void learn(int[] masks, int made) {
+            observed++;
+            for (int f = 0; f < FEATURES; f++) {
+                int having = 0;
+                int safe = 0;
+                for (int move = 0; move < 4; move++) {
+                    if (masks[move] < 0)
+                        continue;
+                    safe++;
+                    if (has(masks[move], f))
+                        having++;
+                }//for
+                if (having == 0 || having == safe)
+                    continue;
+                offered[f]++;
+                if (has(masks[made], f))
+                    taken[f]++;
+            }//for
+        }//learn
+
+        /**
+         * Copies out the rate at which each feature was taken when offered,
+         * starting from even odds.
+         *
+         * @return true if the snake has been watched for long enough.
+         */
+        synchronized boolean read(double[] into, int at) {
+            for (int f = 0; f < FEATURES; f++)
+                into[at + f] = (taken[f] + 1.0) / (offered[f] + 2.0);
+            return observed >= MIN_OBSERVATIONS;
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.battlesnake.starter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ParanoidSearch} spread over a fork-join pool shared by every game.
+ *
+ * Each iteration forks one task per pair of our root move and opponents' joint
+ * reply, so even with only four root moves there is enough work to keep all
+ * cores busy, and idle threads steal from games that still have some. Every
+ * task borrows a {@link ParanoidSearch} worker for its scratch buffers.
+ *
+ * Tasks search with a full window rather than bounds from their siblings. The
+ * merge afterwards is the min over replies and max over our moves, with ties
+ * going to the earlier root move. The result is not repeatable, though:
+ * workers share the table, so a subtree can pick up whatever a sibling stored
+ * first, and how deep an iteration gets before the deadline varies too. When
+ * the deadline passes, the first worker to notice raises a shared flag, the
+ * others stop at their next check, and the unfinished iteration is dropped.
+ *
+ * All workers of a game share one {@link TranspositionTable} and the game's
+ * {@link OpponentModel}, kept from turn to turn along with the engine.
+ */
+public class ParallelSearch implements SearchEngine {
+
+    /**
+     * Threads shared by all games, from the SEARCH_THREADS system property.
+     */
+    static final int THREADS = Integer.getInteger("SEARCH_THREADS", Runtime.getRuntime().availableProcessors());
+    static final ForkJoinPool POOL = new ForkJoinPool(THREADS);
+
+    private final ConcurrentLinkedQueue<ParanoidSearch> workers = new ConcurrentLinkedQueue<>();
+    private final TranspositionTable table = new TranspositionTable();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicLong nodes = new AtomicLong();
+    private final int[] rootOrder = new int[4];
+    private final int[] rootScores = new int[4];
+    private final OpponentModel opponents;
+
+    public ParallelSearch() {
+        this(null);
+    }
+
+    /**
+     * @param opponents what is known of the game's opponents, or null to search every reply.
+     */
+    public ParallelSearch(OpponentModel opponents) {
+        this.opponents = opponents;
+    }
+
+    @Override
+    public SearchResult search(SearchBoard root, int you, long deadlineNanos, Progress progress) {
+        nodes.set(0);
+        cancelled.set(false);
+        table.newSearch();
+        ParanoidSearch.orderRootMoves(root, you, rootOrder);
+        int known = TranspositionTable.move(table.probe(root.getHash()));
+        if (known >= 0)
+            promote(known);
+
+        int bestMove = rootOrder[0];
+        int bestScore = ParanoidSearch.LOSS;
+        int completed = 0;
+        for (int depth = 1; depth <= ParanoidSearch.MAX_DEPTH; depth++) {
+            POOL.invoke(new IterationTask(root, you, depth, deadlineNanos));
+            if (cancelled.get())
+                break;
+
+            int iterationMove = rootOrder[0];
+            int iterationScore = rootScores[0];
+            for (int i = 1; i < 4; i++) {
+                if (rootScores[i] > iterationScore) {
+                    iterationScore = rootScores[i];
+                    iterationMove = rootOrder[i];
+                }
+            }//for
+
+            bestMove = iterationMove;
+            bestScore = iterationScore;
+            completed = depth;
+            table.store(root.getHash(), depth, bestScore, TranspositionTable.EXACT, bestMove);
+            if (progress != null)
+                progress.improved(bestMove, depth);
+            if (bestScore >= ParanoidSearch.WIN - ParanoidSearch.MAX_DEPTH
+                    || bestScore <= ParanoidSearch.LOSS + ParanoidSearch.MAX_DEPTH)
+                break;
+            promote(bestMove);
+        }//for
+
+        return new SearchResult(bestMove, bestScore, completed, nodes.get());
+    }//search
+
+    private ParanoidSearch borrow(SearchBoard root, int you, long deadlineNanos) {
+        ParanoidSearch worker = workers.poll();
+        if (worker == null)
+            worker = new ParanoidSearch(table, opponents);
+        worker.begin(root, you, deadlineNanos, cancelled);
+        return worker;
+    }
+
+    private void giveBack(ParanoidSearch worker) {
+        nodes.addAndGet(worker.getNodes());
+        if (worker.isAborted())
+            cancelled.set(true);
+        workers.offer(worker);
+    }
+
+    /**
+     * Moves the best move of the last iteration to the front of the root order.
+     */
+    private void promote(int move) {
+        int at = 0;
+        while (rootOrder[at] != move)
+            at++;
+        for (; at > 0; at--)
+            rootOrder[at] = rootOrder[at - 1];
+        rootOrder[0] = move;
+    }
+
+    /**
+     * One iteration: forks every root move and waits for all of them.
+     */
+    private class IterationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SearchBoard root;
+        private final int you;
+        private final int depth;
+        private final long deadline;
+
+        IterationTask(SearchBoard root, int you, int depth, long deadline) {
+            this.root = root;
+            this.you = you;
+            this.depth = depth;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            List<MoveTask> moves = new ArrayList<>(4);
+            for (int i = 0; i < 4; i++)
+                moves.add(new MoveTask(this, i));
+            invokeAll(moves);
+        }
+    }
+
+    /**
+     * One of our root moves: forks every joint reply and keeps the worst for us.
+     */
+    private class MoveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IterationTask iteration;
+        private final int index;
+
+        MoveTask(IterationTask iteration, int index) {
+            this.iteration = iteration;
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            int[][] replies;
+            ParanoidSearch worker = borrow(iteration.root, iteration.you, iteration.deadline);
+            try {
+                replies = worker.jointReplies(iteration.root, rootOrder[index], iteration.depth);
+            } finally {
+                giveBack(worker);
+            }
+
+            List<ReplyTask> tasks = new ArrayList<>(replies.length);
+            for (int[] reply : replies)
+                tasks.add(new ReplyTask(iteration, reply));
+            invokeAll(tasks);
+
+            int worst = Integer.MAX_VALUE;
+            for (ReplyTask task : tasks)
+                worst = Math.min(worst, task.score);
+            rootScores[index] = worst;
+        }
+    }
+
+    /**
+     * One root move together with one joint reply, searched by a single worker.
+     */
+    private class ReplyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IterationTask iteration;
+        private final int[] moves;
+        private int score;
+
+        ReplyTask(IterationTask iteration, int[] moves) {
+            this.iteration = iteration;
+            this.moves = moves;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.get())
+                return;
+            ParanoidSearch worker = borrow(iteration.root, iteration.you, iteration.deadline);
+            try {
+                SearchBoard child = worker.scratch().copyFrom(iteration.root);
+                child.step(moves);
+                score = worker.scoreReply(child, iteration.depth - 1);
+            } finally {
+                giveBack(worker);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,495 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative-deepening paranoid alpha-beta search.
+ *
+ * Every turn is searched as our move followed by the joint reply of the
+ * opponents, who are assumed to work together against us. To keep the joint
+ * reply from exploding with 8 snakes, only the {@link #MAX_ADVERSARIES}
+ * opponents closest to our head are searched; the others follow a fixed
+ * "keep going if safe" policy. Each iteration searches one turn deeper than
+ * the last until the deadline, and the best move of the deepest finished
+ * iteration is returned.
+ *
+ * Results are kept in a {@link TranspositionTable} that lives as long as the
+ * engine, which is as long as the game, so positions reached again by
+ * another move order, or again on the next turn, are not searched twice.
+ *
+ * With an {@link OpponentModel}, the replies a searched opponent is unlikely
+ * to make are left out, except for the ones that meet our head, and the
+ * opponents we don't search make their most likely move.
+ *
+ * An instance also serves as the per-thread worker of {@link ParallelSearch},
+ * which drives the package-private entry points below from a fork-join pool.
+ */
+public class ParanoidSearch implements SearchEngine {
+
+    static final int WIN = 1_000_000;
+    static final int LOSS = -WIN;
+    static final int MAX_DEPTH = 64;
+
+    private static final int MAX_ADVERSARIES = 2;
+    private static final int CHECK_EVERY = 256;
+    private static final int UNDECIDED = Integer.MIN_VALUE;
+
+    private final Evaluator evaluator = new Evaluator();
+    private final BatchEvaluator leaves = new BatchEvaluator();
+    private final TranspositionTable table;
+    private final SearchBoard scratch = new SearchBoard();
+    private final int[][] jointMoves = new int[MAX_DEPTH + 2][];
+    private final int[][] adversaries = new int[MAX_DEPTH + 2][MAX_ADVERSARIES];
+    private final int[][] adversaryMoves = new int[MAX_DEPTH + 2][MAX_ADVERSARIES * 4];
+    private final int[][] adversaryMoveCounts = new int[MAX_DEPTH + 2][MAX_ADVERSARIES];
+    private final int[] adversaryCounts = new int[MAX_DEPTH + 2];
+    private final int[] rootOrder = new int[4];
+    private final OpponentModel opponents;
+    private final double[][] odds = new double[MAX_DEPTH + 2][4];
+
+    private int you;
+    private boolean opponentsAtRoot;
+    private long deadline;
+    private AtomicBoolean cancelled;
+    private long nodes;
+    private int untilCheck;
+    private boolean aborted;
+
+    public ParanoidSearch() {
+        this(new TranspositionTable(), null);
+    }
+
+    /**
+     * @param opponents what is known of the game's opponents, or null to search every reply.
+     */
+    public ParanoidSearch(OpponentModel opponents) {
+        this(new TranspositionTable(), opponents);
+    }
+
+    /**
+     * @param table     the table to share with the other workers of the same game.
+     * @param opponents what is known of the game's opponents, or null.
+     */
+    ParanoidSearch(TranspositionTable table, OpponentModel opponents) {
+        this.table = table;
+        this.opponents = opponents;
+        for (int ply = 0; ply < jointMoves.length; ply++)
+            jointMoves[ply] = new int[8];
+    }
+
+    @Override
+    public SearchResult search(SearchBoard root, int you, long deadlineNanos, Progress progress) {
+        begin(root, you, deadlineNanos, null);
+        table.newSearch();
+        // the whole search plays on one copy, undoing every turn it tries
+        SearchBoard board = scratch.copyFrom(root);
+        orderRootMoves(root, you, rootOrder);
+        int known = TranspositionTable.move(table.probe(root.getHash()));
+        if (known >= 0)
+            promote(known);
+
+        int bestMove = rootOrder[0];
+        int bestScore = LOSS;
+        int completed = 0;
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            int iterationMove = -1;
+            int iterationScore = Integer.MIN_VALUE;
+            int alpha = Integer.MIN_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int move = rootOrder[i];
+                int score = minimize(board, move, depth, alpha, Integer.MAX_VALUE, 0);
+                if (aborted)
+                    break;
+                if (score > iterationScore) {
+                    iterationScore = score;
+                    iterationMove = move;
+                    alpha = Math.max(alpha, score);
+                }
+            }//for
+            if (aborted)
+                break;
+
+            bestMove = iterationMove;
+            bestScore = iterationScore;
+            completed = depth;
+            table.store(root.getHash(), depth, toTable(bestScore, 0), TranspositionTable.EXACT, bestMove);
+            if (progress != null)
+                progress.improved(bestMove, depth);
+            if (bestScore >= WIN - MAX_DEPTH || bestScore <= LOSS + MAX_DEPTH)
+                break;
+            promote(bestMove);
+        }//for
+
+        return new SearchResult(bestMove, bestScore, completed, nodes);
+    }//search
+
+    /**
+     * Gets ready for a search from the given root.
+     *
+     * @param cancelled set by any worker of the same search that ran out of time,
+     *                  or null when searching alone.
+     */
+    void begin(SearchBoard root, int you, long deadlineNanos, AtomicBoolean cancelled) {
+        this.you = you;
+        this.opponentsAtRoot = root.opponentsAlive(you) > 0;
+        this.deadline = deadlineNanos;
+        this.cancelled = cancelled;
+        this.nodes = 0;
+        this.untilCheck = CHECK_EVERY;
+        this.aborted = false;
+        if (jointMoves[0].length < root.snakeCount) {
+            for (int ply = 0; ply < jointMoves.length; ply++)
+                jointMoves[ply] = new int[root.snakeCount];
+        }
+    }//begin
+
+    /**
+     * Puts the safe moves first so a cut-short first iteration still has
+     * something sensible to return.
+     */
+    static void orderRootMoves(SearchBoard root, int you, int[] into) {
+        int ordered = 0;
+        for (int move = 0; move < 4; move++)
+            if (root.isSafe(you, move))
+                into[ordered++] = move;
+        for (int move = 0; move < 4; move++)
+            if (!root.isSafe(you, move))
+                into[ordered++] = move;
+    }//orderRootMoves
+
+    /**
+     * Lists every joint move searched in reply to one of our moves.
+     *
+     * @return one full move array per reply, indexed like the snakes.
+     */
+    int[][] jointReplies(SearchBoard board, int ourMove, int depth) {
+        int combinations = prepareReplies(board, ourMove, depth, 0);
+        int[][] replies = new int[combinations][];
+        for (int combination = 0; combination < combinations; combination++) {
+            applyReply(0, combination);
+            replies[combination] = jointMoves[0].clone();
+        }
+        return replies;
+    }//jointReplies
+
+    /**
+     * Scores a position reached after one full turn, searching {@code depth} more
+     * turns with a full window. The board is played on and left as it was.
+     */
+    int scoreReply(SearchBoard board, int depth) {
+        return maximize(board, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, 1);
+    }
+
+    /**
+     * @return a scratch board the caller may set up a position on.
+     */
+    SearchBoard scratch() {
+        return scratch;
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the score of a won or lost position, or {@link #UNDECIDED}.
+     */
+    private int decided(SearchBoard board, int ply) {
+        if (!board.alive[you])
+            return LOSS + ply;
+        if (opponentsAtRoot && board.opponentsAlive(you) == 0)
+            return WIN - ply;
+        return UNDECIDED;
+    }
+
+    /**
+     * Counts a node, of whichever kind, and every {@link #CHECK_EVERY} nodes
+     * looks at the clock and at the other workers.
+     *
+     * @return true once the search has to stop.
+     */
+    private boolean visit() {
+        nodes++;
+        if (--untilCheck > 0)
+            return aborted;
+        untilCheck = CHECK_EVERY;
+        if (System.nanoTime() >= deadline || (cancelled != null && cancelled.get()))
+            aborted = true;
+        return aborted;
+    }//visit
+
+    private int maximize(SearchBoard board, int depth, int alpha, int beta, int ply) {
+        int decided = decided(board, ply);
+        if (decided != UNDECIDED)
+            return decided;
+        if (depth == 0)
+            return evaluator.evaluate(board, you);
+        if (visit())
+            return 0;
+
+        long entry = table.probe(board.hash);
+        int knownMove = -1;
+        if (entry != 0) {
+            knownMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int known = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT)
+                    return known;
+                if (bound == TranspositionTable.LOWER && known > alpha)
+                    alpha = known;
+                else if (bound == TranspositionTable.UPPER && known < beta)
+                    beta = known;
+                if (alpha >= beta)
+                    return known;
+            }//if
+        }//if
+
+        int alphaIn = alpha;
+        // with nowhere to go we die on the next turn whatever happens
+        int best = LOSS + ply + 1;
+        int bestMove = -1;
+        // the move that was best last time goes first, then the rest in order
+        for (int i = knownMove >= 0 ? -1 : 0; i < 4; i++) {
+            int move = i < 0 ? knownMove : i;
+            if ((i >= 0 && move == knownMove) || !board.isSafe(you, move))
+                continue;
+            int score = minimize(board, move, depth, alpha, beta, ply);
+            if (aborted)
+                return 0;
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (score > alpha)
+                alpha = score;
+            if (alpha >= beta)
+                break;
+        }//for
+
+        int bound = best <= alphaIn ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(board.hash, depth, toTable(best, ply), bound, bestMove);
+        return best;
+    }//maximize
+
+    /**
+     * Wins and losses are scored by how many plies away they are from the root.
+     * The table stores them relative to the position instead, so they stay right
+     * when the position turns up at a different ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN - MAX_DEPTH * 2)
+            return score + ply;
+        if (score <= LOSS + MAX_DEPTH * 2)
+            return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN - MAX_DEPTH * 2)
+            return score - ply;
+        if (score <= LOSS + MAX_DEPTH * 2)
+            return score + ply;
+        return score;
+    }
+
+    private int minimize(SearchBoard board, int ourMove, int depth, int alpha, int beta, int ply) {
+        int combinations = prepareReplies(board, ourMove, depth, ply);
+        int[] moves = jointMoves[ply];
+        if (depth == 1)
+            return minimizeLeaves(board, combinations, alpha, ply);
+
+        int best = Integer.MAX_VALUE;
+        for (int combination = 0; combination < combinations; combination++) {
+            if (visit())
+                return 0;
+            applyReply(ply, combination);
+            board.applyJointMove(moves);
+            int score = maximize(board, depth - 1, alpha, beta, ply + 1);
+            board.undo();
+            if (aborted)
+                return 0;
+            if (score < best)
+                best = score;
+            if (score < beta)
+                beta = score;
+            if (alpha >= beta)
+                break;
+        }//for
+        return best;
+    }//minimize
+
+    /**
+     * {@link #minimize} on the last turn of a line, where every reply ends in a
+     * position that is only evaluated. The positions are queued and scored in
+     * blocks. The first block holds one position and each one after twice as
+     * many, so a reply that cuts the rest off, usually the first, still does so
+     * straight away, while a node where every reply counts scores them together.
+     */
+    private int minimizeLeaves(SearchBoard board, int combinations, int alpha, int ply) {
+        int[] moves = jointMoves[ply];
+        int best = Integer.MAX_VALUE;
+        int block = 1;
+        leaves.clear();
+        for (int combination = 0; combination < combinations; combination++) {
+            if (visit())
+                return 0;
+            applyReply(ply, combination);
+            board.applyJointMove(moves);
+            int decided = decided(board, ply + 1);
+            if (decided == UNDECIDED)
+                leaves.add(board, you);
+            board.undo();
+            if (decided != UNDECIDED && decided < best)
+                best = decided;
+            if (leaves.size() == block || combination == combinations - 1) {
+                int[] scores = leaves.evaluate();
+                for (int i = 0; i < leaves.size(); i++)
+                    best = Math.min(best, scores[i]);
+                leaves.clear();
+                block *= 2;
+            }//if
+            if (alpha >= best)
+                return best;
+        }//for
+        return best;
+    }//minimizeLeaves
+
+    /**
+     * Picks the adversaries for a ply, lists their safe moves and fills in the
+     * fixed moves of everyone else.
+     *
+     * @return how many joint replies there are to go through.
+     */
+    private int prepareReplies(SearchBoard board, int ourMove, int depth, int ply) {
+        int[] moves = jointMoves[ply];
+        int[] advs = adversaries[ply];
+        int[] advMoves = adversaryMoves[ply];
+        int[] advCounts = adversaryMoveCounts[ply];
+        adversaryCounts[ply] = pickAdversaries(board, depth, advs);
+
+        int combinations = 1;
+        int ours = board.destination(you, ourMove);
+        double[] likely = odds[ply];
+        for (int a = 0; a < adversaryCounts[ply]; a++) {
+            int snake = advs[a];
+            boolean predicted = opponents != null && opponents.predict(board, snake, likely);
+            int safe = 0;
+            for (int move = 0; move < 4; move++) {
+                if (!board.isSafe(snake, move))
+                    continue;
+                // a reply that meets our head is searched however unlikely it is
+                if (predicted && likely[move] < OpponentModel.PRUNE_BELOW && board.destination(snake, move) != ours)
+                    continue;
+                // likeliest first, so the usual reply sets the bound for the others
+                int at = a * 4 + safe++;
+                while (predicted && at > a * 4 && likely[advMoves[at - 1]] < likely[move]) {
+                    advMoves[at] = advMoves[at - 1];
+                    at--;
+                }
+                advMoves[at] = move;
+            }//for
+            if (safe == 0)
+                advMoves[a * 4 + safe++] = 0;
+            advCounts[a] = safe;
+            combinations *= safe;
+        }//for
+
+        for (int s = 0; s < board.snakeCount; s++)
+            moves[s] = board.alive[s] && !isAdversary(s, ply) ? policyMove(board, s, likely) : 0;
+        moves[you] = ourMove;
+        return combinations;
+    }//prepareReplies
+
+    private boolean isAdversary(int snake, int ply) {
+        for (int a = 0; a < adversaryCounts[ply]; a++)
+            if (adversaries[ply][a] == snake)
+                return true;
+        return false;
+    }
+
+    /**
+     * Writes the adversaries' part of one joint reply into the ply's move array.
+     */
+    private void applyReply(int ply, int combination) {
+        int[] moves = jointMoves[ply];
+        int[] advs = adversaries[ply];
+        int[] advMoves = adversaryMoves[ply];
+        int[] advCounts = adversaryMoveCounts[ply];
+        for (int a = 0; a < adversaryCounts[ply]; a++) {
+            moves[advs[a]] = advMoves[a * 4 + combination % advCounts[a]];
+            combination /= advCounts[a];
+        }//for
+    }//applyReply
+
+    /**
+     * Fills {@code into} with the living opponents closest to our head that can
+     * still reach us within the remaining depth.
+     *
+     * @return how many were picked.
+     */
+    private int pickAdversaries(SearchBoard board, int depth, int[] into) {
+        int head = board.headCell(you);
+        int count = 0;
+        for (int s = 0; s < board.snakeCount; s++) {
+            if (s == you || !board.alive[s])
+                continue;
+            int distance = board.distance(head, board.headCell(s));
+            if (distance > 2 * depth + 1)
+                continue;
+            // insertion into a tiny sorted list, nearest first
+            int at = count < into.length ? count++ : into.length;
+            while (at > 0 && distance < board.distance(head, board.headCell(into[at - 1]))) {
+                if (at < into.length)
+                    into[at] = into[at - 1];
+                at--;
+            }
+            if (at < into.length)
+                into[at] = s;
+        }//for
+        return count;
+    }//pickAdversaries
+
+    /**
+     * The move a snake we don't search is assumed to make: its most likely one
+     * if the opponent model knows it, otherwise straight on if that is safe, and
+     * otherwise the first safe move.
+     *
+     * @param likely scratch space for the opponent model.
+     */
+    private int policyMove(SearchBoard board, int snake, double[] likely) {
+        if (snake != you && opponents != null && opponents.predict(board, snake, likely)) {
+            int best = -1;
+            for (int move = 0; move < 4; move++)
+                if (likely[move] > 0 && (best < 0 || likely[move] > likely[best]))
+                    best = move;
+            if (best >= 0)
+                return best;
+        }//if
+        int straight = board.heading(snake);
+        if (straight >= 0 && board.isSafe(snake, straight))
+            return straight;
+        for (int move = 0; move < 4; move++)
+            if (board.isSafe(snake, move))
+                return move;
+        return 0;
+    }//policyMove
+
+    /**
+     * Moves the best move of the last iteration to the front of the root order.
+     */
+    private void promote(int move) {
+        int at = 0;
+        while (rootOrder[at] != move)
+            at++;
+        for (; at > 0; at--)
+            rootOrder[at] = rootOrder[at - 1];
+        rootOrder[0] = move;
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Shortest paths over a {@link SearchBoard}.
+ *
+ * {@link #update(SearchBoard)} runs a breadth-first search from every living
+ * head and keeps, for each snake and square, the number of turns it takes to
+ * get there and the first move of that path. The fields are cached by board
+ * hash, so food targeting, head-to-head checks and anything else asking about
+ * the same turn share one set of searches. {@link #aStar(SearchBoard, int, int)}
+ * finds a single path when only one target matters.
+ *
+ * Like {@link SpaceAnalyzer}, a body segment counts as free once the tail will
+ * have moved past it by the time the path arrives. Nothing here is thread safe.
+ */
+public class PathFinder {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private int[][] distance = new int[0][];
+    private byte[][] firstMove = new byte[0][];
+    private int[] queue = new int[0];
+    private int[] freeAt = new int[0];
+    private int snakes;
+    private long cachedHash;
+    private int cachedCells = -1;
+
+    private int[] heap = new int[0];
+    private int[] heapKey = new int[0];
+    private int[] cost = new int[0];
+    private int[] via = new int[0];
+    private int[] seen = new int[0];
+    private int seenMark;
+
+    /**
+     * Builds the distance fields for a position, unless they are already there.
+     */
+    public void update(SearchBoard board) {
+        int cells = board.cells;
+        if (cells == cachedCells && board.snakeCount == snakes && board.hash == cachedHash)
+            return;
+        prepare(board);
+        if (distance.length < board.snakeCount || (distance.length > 0 && distance[0].length < cells)) {
+            distance = new int[board.snakeCount][cells];
+            firstMove = new byte[board.snakeCount][cells];
+        }
+        for (int s = 0; s < board.snakeCount; s++) {
+            Arrays.fill(distance[s], 0, cells, UNREACHABLE);
+            if (board.alive[s])
+                search(board, s);
+        }//for
+        snakes = board.snakeCount;
+        cachedCells = cells;
+        cachedHash = board.hash;
+    }//update
+
+    /**
+     * @return turns for a snake's head to reach a square, or {@link #UNREACHABLE}.
+     */
+    public int distance(int snake, int cell) {
+        return distance[snake][cell];
+    }
+
+    /**
+     * @return the first move of a shortest path to a square, or -1 if it can't be reached.
+     */
+    public int firstMove(int snake, int cell) {
+        return distance[snake][cell] == UNREACHABLE ? -1 : firstMove[snake][cell];
+    }
+
+    /**
+     * @return the closest food the snake gets to before any rival could take it,
+     *         or -1 if there is none. Call {@link #update(SearchBoard)} first.
+     */
+    public int closestFoodWon(SearchBoard board, int snake) {
+        int best = -1;
+        int bestDistance = UNREACHABLE;
+        for (int cell = 0; cell < board.cells; cell++) {
+            if (!board.food[cell])
+                continue;
+            int mine = distance[snake][cell];
+            if (mine >= bestDistance || !wins(board, snake, cell, mine))
+                continue;
+            best = cell;
+            bestDistance = mine;
+        }//for
+        return best;
+    }//closestFoodWon
+
+    /**
+     * @return true if no other snake gets to the square first, or at the same time
+     *         while being at least as long.
+     */
+    private boolean wins(SearchBoard board, int snake, int cell, int mine) {
+        for (int s = 0; s < board.snakeCount; s++) {
+            if (s == snake || !board.alive[s])
+                continue;
+            int theirs = distance[s][cell];
+            if (theirs < mine || (theirs == mine && board.length[s] >= board.length[snake]))
+                return false;
+        }//for
+        return true;
+    }//wins
+
+    /**
+     * A* from a snake's head to one square, with the distance on an empty board
+     * as the estimate.
+     *
+     * @return the first move of the path, or -1 if there is no path.
+     */
+    public int aStar(SearchBoard board, int snake, int target) {
+        prepare(board);
+        int cells = board.cells;
+        if (cost.length < cells) {
+            heap = new int[cells * 4];
+            heapKey = new int[cells * 4];
+            cost = new int[cells];
+            via = new int[cells];
+            seen = new int[cells];
+            seenMark = 0;
+        }
+        int mark = ++seenMark;
+        int start = board.headCell(snake);
+        int size = 0;
+
+        seen[start] = mark;
+        cost[start] = 0;
+        via[start] = -1;
+        size = push(size, start, board.distance(start, target));
+        while (size > 0) {
+            int cell = heap[0];
+            int key = heapKey[0];
+            size = pop(size);
+            if (key - board.distance(cell, target) > cost[cell])
+                continue;
+            if (cell == target)
+                return via[cell];
+
+            int time = cost[cell] + 1;
+            for (int move = 0; move < 4; move++) {
+                int next = board.neighbour(cell, move);
+                if (next < 0)
+                    continue;
+                if (freeAt[next] > time || (seen[next] == mark && cost[next] <= time))
+                    continue;
+                seen[next] = mark;
+                cost[next] = time;
+                via[next] = cell == start ? move : via[cell];
+                if (size < heap.length)
+                    size = push(size, next, time + board.distance(next, target));
+            }//for
+        }//while
+        return -1;
+    }//aStar
+
+    private void search(SearchBoard board, int snake) {
+        int[] dist = distance[snake];
+        byte[] first = firstMove[snake];
+        int start = board.headCell(snake);
+        int head = 0;
+        int tail = 0;
+        dist[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            int time = dist[cell] + 1;
+            for (int move = 0; move < 4; move++) {
+                int next = board.neighbour(cell, move);
+                if (next < 0)
+                    continue;
+                if (dist[next] != UNREACHABLE || freeAt[next] > time)
+                    continue;
+                dist[next] = time;
+                first[next] = cell == start ? (byte) move : first[cell];
+                queue[tail++] = next;
+            }//for
+        }//while
+    }//search
+
+    /**
+     * Sizes the buffers and works out when each square comes free.
+     */
+    private void prepare(SearchBoard board) {
+        int cells = board.cells;
+        if (queue.length < cells) {
+            queue = new int[cells];
+            freeAt = new int[cells];
+        }
+        Arrays.fill(freeAt, 0, cells, 0);
+        for (int s = 0; s < board.snakeCount; s++) {
+            if (!board.alive[s])
+                continue;
+            int length = board.length[s];
+            for (int k = 0; k < length; k++) {
+                int cell = board.segment(s, k);
+                if (freeAt[cell] < length - k)
+                    freeAt[cell] = length - k;
+            }//for
+        }//for
+    }//prepare
+
+    private int push(int size, int cell, int key) {
+        int at = size++;
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (heapKey[parent] <= key)
+                break;
+            heap[at] = heap[parent];
+            heapKey[at] = heapKey[parent];
+            at = parent;
+        }//while
+        heap[at] = cell;
+        heapKey[at] = key;
+        return size;
+    }//push
+
+    private int pop(int size) {
+        size--;
+        int cell = heap[size];
+        int key = heapKey[size];
+        int at = 0;
+        while (true) {
+            int child = at * 2 + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heapKey[child + 1] < heapKey[child])
+                child++;
+            if (heapKey[child] >= key)
+                break;
+            heap[at] = heap[child];
+            heapKey[at] = heapKey[child];
+            at = child;
+        }//while
+        heap[at] = cell;
+        heapKey[at] = key;
+        return size;
+    }//pop
+
+}
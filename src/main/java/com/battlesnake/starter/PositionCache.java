@@ -0,0 +1,146 @@
+package com.battlesnake.starter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Search results shared by every game the process plays, so a position one
+ * game searched is answered straight away when another game reaches it.
+ *
+ * Positions are keyed like the {@link OpeningBook}, by
+ * {@link OpeningBook#canonicalKey}, so mirrored and turned copies of a
+ * position share an entry and the move is stored as it is in the key's
+ * orientation. The key takes in the ruleset and the hazard damage, so games
+ * played under different rules never answer each other's positions. Openings and small fights come up again and again across
+ * games on the same board size, which is where the hits come from.
+ *
+ * The cache is split into segments by key, each an access ordered map behind
+ * its own lock, so games on different threads rarely wait for each other.
+ * Each segment holds its share of the entries and drops the least recently
+ * used one when full.
+ */
+public class PositionCache {
+
+    /**
+     * Entries when the POSITION_CACHE system property doesn't say, a few MB.
+     */
+    public static final int DEFAULT_ENTRIES = 1 << 15;
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param entries how many positions to keep at most.
+     */
+    public PositionCache(int entries) {
+        int perSegment = Math.max(1, entries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment(perSegment);
+    }
+
+    /**
+     * @return the cache sized by the POSITION_CACHE system property, or null if
+     *         it is set to 0.
+     */
+    public static PositionCache fromProperties() {
+        int entries = Integer.getInteger("POSITION_CACHE", DEFAULT_ENTRIES);
+        return entries > 0 ? new PositionCache(entries) : null;
+    }
+
+    /**
+     * @param canonical the position's {@link OpeningBook#canonicalKey}.
+     * @param minDepth  the depth the stored search must have reached.
+     * @return the stored move for the position as it is on the board, 0 up to
+     *         3 right, or -1 if there is none searched deep enough.
+     */
+    public int probe(long canonical, int minDepth) {
+        long key = OpeningBook.key(canonical);
+        Segment segment = segmentFor(key);
+        OpeningBook.Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry == null || entry.depth < minDepth) {
+            misses.incrementAndGet();
+            return -1;
+        }
+        hits.incrementAndGet();
+        return OpeningBook.fromOrientation(entry.move, OpeningBook.transform(canonical));
+    }//probe
+
+    /**
+     * Remembers a search of a position, unless a deeper one is already stored.
+     *
+     * @param move the move as it is on the board.
+     */
+    public void store(long canonical, int move, int depth, int score) {
+        long key = OpeningBook.key(canonical);
+        OpeningBook.Entry entry = new OpeningBook.Entry(
+                OpeningBook.toOrientation(move, OpeningBook.transform(canonical)), depth, score);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            OpeningBook.Entry known = segment.get(key);
+            if (known == null || known.depth <= depth)
+                segment.put(key, entry);
+        }
+    }//store
+
+    /**
+     * @return the positions stored.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments)
+            synchronized (segment) {
+                size += segment.size();
+            }
+        return size;
+    }
+
+    /**
+     * Forgets every position.
+     */
+    public void clear() {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.clear();
+            }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private Segment segmentFor(long key) {
+        // the low bits of a key are cleared, the high ones are as mixed as any
+        return segments[(int) (key >>> 60) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * One lock's share of the cache, least recently used first.
+     */
+    private static class Segment extends LinkedHashMap<Long, OpeningBook.Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, OpeningBook.Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout of a recorded game, as written by {@link ReplayRecorder}.
+ *
+ * A file starts with {@link #MAGIC} and {@link #VERSION} and then holds one
+ * record per request, all numbers big-endian:
+ *
+ * <pre>
+ * byte   route         START, MOVE or END
+ * long   time          wall clock when it was handled, in milliseconds
+ * long   nanos         time taken to handle it
+ * int    body length   followed by the request body as sent by the engine
+ * short  reply length  followed by our reply, the move for MOVE records
+ * </pre>
+ */
+public class ReplayFile {
+
+    public static final int MAGIC = 0x534e4b52;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 8;
+
+    public static final byte START = 1;
+    public static final byte MOVE = 2;
+    public static final byte END = 3;
+
+    /**
+     * One recorded request.
+     */
+    public static class Record {
+        public final byte route;
+        public final long time;
+        public final long nanos;
+        public final byte[] body;
+        public final String reply;
+
+        public Record(byte route, long time, long nanos, byte[] body, String reply) {
+            this.route = route;
+            this.time = time;
+            this.nanos = nanos;
+            this.body = body;
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * @return the record type for a route, or 0 for routes that aren't recorded.
+     */
+    public static byte route(String uri) {
+        if (uri.equals("/move"))
+            return MOVE;
+        if (uri.equals("/start"))
+            return START;
+        if (uri.equals("/end"))
+            return END;
+        return 0;
+    }
+
+    /**
+     * @return the bytes a record takes on disk.
+     */
+    static int size(byte[] body, byte[] reply) {
+        return 1 + 8 + 8 + 4 + body.length + 2 + reply.length;
+    }
+
+    static void header(ByteBuffer into) {
+        into.putInt(MAGIC).putInt(VERSION);
+    }
+
+    static void write(ByteBuffer into, byte route, long time, long nanos, byte[] body, byte[] reply) {
+        into.put(route).putLong(time).putLong(nanos);
+        into.putInt(body.length).put(body);
+        into.putShort((short) reply.length).put(reply);
+    }
+
+    /**
+     * Reads a whole file. A record cut short by a crash ends the list quietly.
+     */
+    public static List<Record> read(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC)
+            throw new IOException("Not a replay file: " + file);
+        int version = in.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported replay version " + version + ": " + file);
+
+        List<Record> records = new ArrayList<>();
+        while (in.remaining() >= 1 + 8 + 8 + 4) {
+            byte route = in.get();
+            long time = in.getLong();
+            long nanos = in.getLong();
+            int length = in.getInt();
+            if (length < 0 || in.remaining() < length + 2)
+                break;
+            byte[] body = new byte[length];
+            in.get(body);
+            int replyLength = in.getShort() & 0xffff;
+            if (in.remaining() < replyLength)
+                break;
+            byte[] reply = new byte[replyLength];
+            in.get(reply);
+            records.add(new Record(route, time, nanos, body, new String(reply, StandardCharsets.UTF_8)));
+        }//while
+        return records;
+    }//read
+
+}
@@ -0,0 +1,181 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends every /start, /move and /end of a game to its own {@link ReplayFile},
+ * so a bad turn can be played again offline with {@link ReplayRunner}.
+ *
+ * Records are collected in a buffer per game and written through a
+ * {@link FileChannel} when it fills up and when the game ends, so most moves
+ * only copy their request into memory. Games that never send /end are closed
+ * once they have been idle as long as {@link GameStateStore} waits for them.
+ *
+ * Recording is on when the REPLAY_DIR system property names a directory.
+ */
+public class ReplayRecorder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayRecorder.class);
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final byte[] NO_REPLY = new byte[0];
+
+    private final Path dir;
+    private final long idleMillis;
+    private final ConcurrentHashMap<String, Recording> games = new ConcurrentHashMap<>();
+
+    public ReplayRecorder(Path dir) {
+        this(dir, GameStateStore.DEFAULT_IDLE_MILLIS);
+    }
+
+    public ReplayRecorder(Path dir, long idleMillis) {
+        this.dir = dir;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * @return a recorder for the REPLAY_DIR directory, or null if it isn't set.
+     */
+    public static ReplayRecorder fromProperties() {
+        String dir = System.getProperty("REPLAY_DIR");
+        return dir == null ? null : new ReplayRecorder(Paths.get(dir));
+    }
+
+    /**
+     * Adds a request to its game's recording. /end also closes the file.
+     *
+     * @param key   the game's {@link GameStateStore} key.
+     * @param route one of the {@link ReplayFile} routes.
+     * @param reply our reply, or null.
+     */
+    public void record(String key, byte route, byte[] body, String reply, long nanos) {
+        if (route == ReplayFile.START)
+            closeIdle();
+        Recording recording = games.computeIfAbsent(key, Recording::new);
+        byte[] replyBytes = reply == null ? NO_REPLY : reply.getBytes(StandardCharsets.UTF_8);
+        try {
+            synchronized (recording) {
+                recording.append(route, System.currentTimeMillis(), nanos, body, replyBytes);
+                if (route == ReplayFile.END) {
+                    games.remove(key, recording);
+                    recording.close();
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not record {}, dropping its replay", key, e);
+            close(key);
+        }
+    }//record
+
+    /**
+     * Writes out and closes every open recording.
+     */
+    public void closeAll() {
+        for (String key : games.keySet())
+            close(key);
+    }
+
+    /**
+     * @return the file a game is recorded to.
+     */
+    public Path fileFor(String key) {
+        return dir.resolve(key.replaceAll("[^A-Za-z0-9_.-]", "_") + ".replay");
+    }
+
+    private void closeIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        for (Recording recording : games.values())
+            if (recording.lastWrite < cutoff)
+                close(recording.key);
+    }
+
+    private void close(String key) {
+        Recording recording = games.remove(key);
+        if (recording == null)
+            return;
+        try {
+            synchronized (recording) {
+                recording.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not finish the replay of {}", key, e);
+        }
+    }//close
+
+    /**
+     * The open file and pending records of one game.
+     */
+    private class Recording {
+        final String key;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        FileChannel channel;
+        boolean closed;
+        volatile long lastWrite = System.currentTimeMillis();
+
+        Recording(String key) {
+            this.key = key;
+        }
+
+        void append(byte route, long time, long nanos, byte[] body, byte[] reply) throws IOException {
+            // lost a race with closeIdle, the game has been written out already
+            if (closed)
+                return;
+            if (channel == null)
+                open();
+            lastWrite = time;
+            int size = ReplayFile.size(body, reply);
+            if (size > buffer.remaining())
+                flush();
+            if (size > buffer.capacity()) {
+                ByteBuffer big = ByteBuffer.allocate(size);
+                ReplayFile.write(big, route, time, nanos, body, reply);
+                big.flip();
+                writeFully(big);
+            } else {
+                ReplayFile.write(buffer, route, time, nanos, body, reply);
+            }
+        }//append
+
+        private void open() throws IOException {
+            Files.createDirectories(dir);
+            channel = FileChannel.open(fileFor(key), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            if (channel.size() == 0)
+                ReplayFile.header(buffer);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        void close() throws IOException {
+            closed = true;
+            if (channel == null)
+                return;
+            try {
+                flush();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        private void writeFully(ByteBuffer from) throws IOException {
+            while (from.hasRemaining())
+                channel.write(from);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Plays recorded games from {@link ReplayRecorder} through {@link Snake.Handler}
+ * as fast as it will go.
+ *
+ * Every move is timed and compared with the move recorded at the time, so a
+ * run doubles as a performance benchmark and a behaviour regression check:
+ *
+ * <pre>
+ * java -cp starter-snake-java.jar com.battlesnake.starter.ReplayRunner [--engine name] replays/
+ * </pre>
+ *
+ * Games are replayed with the greedy logic alone unless another engine is
+ * asked for, whatever the ENGINE system property says. That is fast and gives
+ * the same moves on every run; the other engines search until a deadline, so
+ * their moves depend on how far they got. Replayed games are practice games
+ * with metrics of their own, and nothing is recorded. Exits with status 2 if
+ * any move changed.
+ */
+public class ReplayRunner {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private final Snake.Handler handler;
+    private final MoveRequestDecoder decoder = new MoveRequestDecoder();
+    private final MoveRequest request = new MoveRequest();
+    private final Histogram latency = new Histogram();
+    private final List<String> changed = new ArrayList<>();
+    private int games;
+    private long elapsedNanos;
+
+    public ReplayRunner() {
+        this("greedy");
+    }
+
+    /**
+     * @param engine the {@link SearchEngine#forName(String) engine} to decide with.
+     */
+    public ReplayRunner(String engine) {
+        GameStateStore games = new GameStateStore(GameStateStore.DEFAULT_CAPACITY,
+                GameStateStore.DEFAULT_IDLE_MILLIS, false, engine);
+        handler = new Snake.Handler(games, new Metrics(), null);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int first = args.length >= 2 && args[0].equals("--engine") ? 2 : 0;
+        if (args.length == first) {
+            System.err.println("usage: ReplayRunner [--engine name] <replay file or directory>...");
+            System.exit(1);
+        }
+        ReplayRunner runner = first == 0 ? new ReplayRunner() : new ReplayRunner(args[1]);
+        for (int i = first; i < args.length; i++)
+            runner.replay(Paths.get(args[i]));
+        runner.report(System.out);
+        System.exit(runner.getChanged().isEmpty() ? 0 : 2);
+    }
+
+    /**
+     * Replays one file, or every .replay file in a directory.
+     */
+    public void replay(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            replayGame(path);
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(path, "*.replay")) {
+            for (Path file : dir)
+                files.add(file);
+        }
+        Collections.sort(files);
+        for (Path file : files)
+            replayGame(file);
+    }//replay
+
+    private void replayGame(Path file) throws IOException {
+        games++;
+        for (ReplayFile.Record record : ReplayFile.read(file)) {
+            long start = System.nanoTime();
+            if (record.route == ReplayFile.START) {
+                handler.start(JSON_MAPPER.readTree(record.body));
+            } else if (record.route == ReplayFile.END) {
+                handler.end(JSON_MAPPER.readTree(record.body));
+            } else if (record.route == ReplayFile.MOVE) {
+                decoder.decode(record.body, request);
+                String move = handler.move(request).get("move");
+                long nanos = System.nanoTime() - start;
+                latency.record(nanos);
+                elapsedNanos += nanos;
+                if (!move.equals(record.reply))
+                    changed.add(file.getFileName() + " turn " + request.turn + ": " + record.reply + " -> " + move);
+            }//if
+        }//for
+    }//replayGame
+
+    /**
+     * Prints throughput, the latency distribution and every changed move.
+     */
+    public void report(PrintStream out) {
+        long moves = latency.getCount();
+        out.printf("games %d, moves %d, %.1f moves/s%n", games, moves,
+                elapsedNanos == 0 ? 0.0 : moves / (elapsedNanos * 1e-9));
+        out.printf("latency ms  p50 %.3f  p90 %.3f  p99 %.3f  max %.3f%n", latency.getValueAtQuantile(0.5) * 1e-6,
+                latency.getValueAtQuantile(0.9) * 1e-6, latency.getValueAtQuantile(0.99) * 1e-6,
+                latency.getMax() * 1e-6);
+        out.printf("changed moves %d%n", changed.size());
+        for (String line : changed)
+            out.println("  " + line);
+    }//report
+
+    public int getGames() {
+        return games;
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    public List<String> getChanged() {
+        return changed;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.battlesnake.starter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Every response the snake gives, built and encoded once.
+ *
+ * There are only so many things to say: pong, our looks, nothing, and one of
+ * four moves. Each is kept as an unmodifiable map for the Java callers and as
+ * the encoded JSON body, so answering a request allocates neither a map nor a
+ * string and {@link #encode(Map)} is a lookup. Anything else, such as the
+ * null of a failed /start, still goes through the {@link ObjectMapper}.
+ */
+public class Responses {
+
+    public static final Map<String, String> PONG = Collections.singletonMap("message", "pong");
+    public static final Map<String, String> APPEARANCE = appearance();
+    public static final Map<String, String> EMPTY = Collections.emptyMap();
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final String[] MOVES = { "up", "down", "left", "right" };
+    private static final List<Map<String, String>> MOVE_RESPONSES = moveResponses();
+    private static final Map<Map<String, String>, byte[]> ENCODED = encodeAll();
+
+    /**
+     * @return the response for a move, the same instance every time.
+     */
+    public static Map<String, String> move(String move) {
+        for (int i = 0; i < MOVES.length; i++)
+            if (MOVES[i].equals(move))
+                return MOVE_RESPONSES.get(i);
+        return Collections.singletonMap("move", move);
+    }
+
+    /**
+     * @return the JSON body for a response. Don't change the array, it is shared.
+     */
+    public static byte[] encode(Map<String, String> response) throws JsonProcessingException {
+        byte[] body = ENCODED.get(response);
+        return body != null ? body : JSON_MAPPER.writeValueAsBytes(response);
+    }
+
+    private static Map<String, String> appearance() {
+        Map<String, String> response = new LinkedHashMap<>();
+        response.put("color", "#00FF00");
+        response.put("headType", "pixel");
+        response.put("tailType", "bolt");
+        return Collections.unmodifiableMap(response);
+    }
+
+    /**
+     * In the order of {@code MOVES}.
+     */
+    private static List<Map<String, String>> moveResponses() {
+        List<Map<String, String>> responses = new ArrayList<>(MOVES.length);
+        for (String move : MOVES)
+            responses.add(Collections.singletonMap("move", move));
+        return Collections.unmodifiableList(responses);
+    }
+
+    /**
+     * Looked up by identity, the maps above are the only keys and their
+     * contents never change.
+     */
+    private static Map<Map<String, String>, byte[]> encodeAll() {
+        Map<Map<String, String>, byte[]> encoded = new IdentityHashMap<>();
+        try {
+            encoded.put(PONG, JSON_MAPPER.writeValueAsBytes(PONG));
+            encoded.put(APPEARANCE, JSON_MAPPER.writeValueAsBytes(APPEARANCE));
+            encoded.put(EMPTY, JSON_MAPPER.writeValueAsBytes(EMPTY));
+            for (Map<String, String> response : MOVE_RESPONSES)
+                encoded.put(response, JSON_MAPPER.writeValueAsBytes(response));
+        } catch (JsonProcessingException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        return encoded;
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.battlesnake.starter;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What a game mode changes about how a {@link SearchBoard} plays: how the
+ * squares connect and, for the {@link Simulator}, how hazards spread.
+ *
+ * The mode is looked up once, when a request is decoded, rather than checked
+ * on every move. Each mode builds a table of every square's four neighbours
+ * the first time it meets a board size, and boards look their moves up in it,
+ * so standard and wrapped boards run the same code without a wall check.
+ * Hazard damage is a setting of the game rather than of the mode, since any
+ * mode can be played on a map with hazards; the board applies it every turn.
+ */
+public abstract class Ruleset {
+
+    /**
+     * Damage a hazard deals per turn when the game doesn't say.
+     */
+    public static final int HAZARD_DAMAGE = 14;
+
+    /**
+     * Turns between shrinks of a royale board when the game doesn't say.
+     */
+    public static final int SHRINK_EVERY = 25;
+
+    public static final Ruleset STANDARD = new Standard("standard");
+    public static final Ruleset WRAPPED = new Wrapped();
+    public static final Ruleset ROYALE = new Royale();
+
+    private static final int MAX_SIZES = 64;
+
+    private final String name;
+    private final ConcurrentHashMap<Integer, int[]> tables = new ConcurrentHashMap<>();
+
+    Ruleset(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name the game's ruleset name, as in game.ruleset.name.
+     * @return the mode, standard for any the board plays no differently in.
+     */
+    public static Ruleset forName(String name) {
+        if (WRAPPED.name.equals(name))
+            return WRAPPED;
+        if (ROYALE.name.equals(name))
+            return ROYALE;
+        return STANDARD;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if leaving one edge comes back in at the other, so the
+     *         board has no edges to speak of.
+     */
+    public boolean wraps() {
+        return false;
+    }
+
+    /**
+     * @return the square a move from each square lands on, at
+     *         {@code cell * 4 + move}, or -1 off the board. The table is shared
+     *         by every board of the size, don't change it.
+     */
+    int[] neighbours(int width, int height) {
+        Integer size = (width << 16) | (height & 0xFFFF);
+        int[] table = tables.get(size);
+        if (table != null)
+            return table;
+        // a crude bound, no server meets this many board sizes for real
+        if (tables.size() >= MAX_SIZES)
+            tables.clear();
+        table = new int[width * height * 4];
+        for (int cell = 0; cell < width * height; cell++) {
+            for (int move = 0; move < 4; move++) {
+                int x = along(cell % width + SearchBoard.DX[move], width);
+                int y = along(cell / width + SearchBoard.DY[move], height);
+                table[cell * 4 + move] = x < 0 || y < 0 ? -1 : y * width + x;
+            }//for
+        }//for
+        int[] raced = tables.putIfAbsent(size, table);
+        return raced != null ? raced : table;
+    }//neighbours
+
+    /**
+     * @return where a coordinate that may be one step past an edge ends up, or
+     *         -1 if that is off the board.
+     */
+    abstract int along(int coordinate, int size);
+
+    /**
+     * @return the fewest moves between two squares, ignoring bodies.
+     */
+    abstract int distance(int width, int height, int from, int to);
+
+    /**
+     * Adds the hazards that appear between turns. Only the simulator plays
+     * this part of the rules; a real game sends the hazards with every turn.
+     *
+     * @param shrinkEvery turns between shrinks, for the modes that shrink.
+     */
+    void spreadHazards(SearchBoard board, int shrinkEvery, Random random) {
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Walls all round.
+     */
+    private static class Standard extends Ruleset {
+
+        Standard(String name) {
+            super(name);
+        }
+
+        @Override
+        int along(int coordinate, int size) {
+            return coordinate >= 0 && coordinate < size ? coordinate : -1;
+        }
+
+        @Override
+        int distance(int width, int height, int from, int to) {
+            return Math.abs(from % width - to % width) + Math.abs(from / width - to / width);
+        }
+    }
+
+    /**
+     * Leaving one edge comes back in at the other.
+     */
+    private static class Wrapped extends Ruleset {
+
+        Wrapped() {
+            super("wrapped");
+        }
+
+        @Override
+        public boolean wraps() {
+            return true;
+        }
+
+        @Override
+        int along(int coordinate, int size) {
+            return (coordinate + size) % size;
+        }
+
+        @Override
+        int distance(int width, int height, int from, int to) {
+            int dx = Math.abs(from % width - to % width);
+            int dy = Math.abs(from / width - to / width);
+            return Math.min(dx, width - dx) + Math.min(dy, height - dy);
+        }
+    }
+
+    /**
+     * Standard walls, with the hazard closing in from a random side every
+     * {@code shrinkEvery} turns.
+     */
+    private static class Royale extends Standard {
+
+        Royale() {
+            super("royale");
+        }
+
+        @Override
+        void spreadHazards(SearchBoard board, int shrinkEvery, Random random) {
+            if (shrinkEvery <= 0 || board.turn == 0 || board.turn % shrinkEvery != 0)
+                return;
+            int width = board.width;
+            int left = width;
+            int right = -1;
+            int top = board.height;
+            int bottom = -1;
+            for (int cell = 0; cell < board.cells; cell++) {
+                if (board.isHazard(cell))
+                    continue;
+                left = Math.min(left, cell % width);
+                right = Math.max(right, cell % width);
+                top = Math.min(top, cell / width);
+                bottom = Math.max(bottom, cell / width);
+            }//for
+            if (right < left)
+                return;
+            switch (random.nextInt(4)) {
+            case 0:
+                for (int x = left; x <= right; x++)
+                    cover(board, top * width + x);
+                break;
+            case 1:
+                for (int x = left; x <= right; x++)
+                    cover(board, bottom * width + x);
+                break;
+            case 2:
+                for (int y = top; y <= bottom; y++)
+                    cover(board, y * width + left);
+                break;
+            default:
+                for (int y = top; y <= bottom; y++)
+                    cover(board, y * width + right);
+                break;
+            }
+        }//spreadHazards
+
+        private static void cover(SearchBoard board, int cell) {
+            if (!board.isHazard(cell))
+                board.placeHazard(cell);
+        }
+    }
+
+}
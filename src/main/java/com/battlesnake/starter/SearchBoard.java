@@ -0,0 +1,776 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Mutable position used by the search engines to play turns ahead.
+ *
+ * Squares are numbered {@code y * width + x}. Each snake's body lives in a ring
+ * buffer, head at {@code ring[s][head[s]]} and older segments behind it, so a
+ * turn only writes the new head and moves the tail pointer. {@link #occupancy}
+ * counts the segments on each square, which keeps the stacked tails of young
+ * or freshly fed snakes correct.
+ *
+ * Moves use the same numbering as everywhere else: 0 up, 1 down, 2 left,
+ * 3 right, with up being y - 1. Where a move lands comes from the game's
+ * {@link Ruleset}, as a table of every square's neighbours, so wrapped boards
+ * cost no more than walled ones. Hazards hurt whoever ends a turn on them
+ * without eating; they only change when the engine sends new ones.
+ *
+ * A {@link Zobrist} hash of heads, bodies, lengths, health, food and hazards is kept
+ * up to date by every change, so looking a position up costs nothing extra.
+ *
+ * Search plays turns with {@link #applyJointMove(int[])} and takes them back
+ * with {@link #undo()}, so one board serves a whole line of play without being
+ * copied. Each turn pushes what it destroys onto an undo stack: every snake's
+ * old tail and health, where its head went, and whether it ate or died.
+ * Everything else, the ring buffers included, is put back from that.
+ */
+public class SearchBoard {
+
+    public static final int[] DX = { 0, 0, -1, 1 };
+    public static final int[] DY = { -1, 1, 0, 0 };
+    public static final int MAX_HEALTH = 100;
+
+    int width;
+    int height;
+    int cells;
+    int turn;
+
+    int snakeCount;
+    boolean[] alive = new boolean[0];
+    int[] health = new int[0];
+    int[] length = new int[0];
+    int[] head = new int[0];
+    int[][] ring = new int[0][];
+    int mask;
+
+    byte[] occupancy = new byte[0];
+    boolean[] food = new boolean[0];
+    int foodCount;
+    byte[] hazards = new byte[0];
+    int hazardCount;
+    int hazardDamage = Ruleset.HAZARD_DAMAGE;
+    Ruleset rules = Ruleset.STANDARD;
+    int[] neighbours = new int[0];
+    long hash;
+
+    private int[] newHeads = new int[0];
+    private boolean[] eliminated = new boolean[0];
+    private String[] ids = new String[0];
+
+    private static final byte WAS_ALIVE = 1;
+    private static final byte ATE = 2;
+    private static final byte DIED = 4;
+
+    // one frame per turn played, snakeCount entries per frame
+    private int plies;
+    private long[] undoHash = new long[0];
+    private int[] undoTail = new int[0];
+    private int[] undoHealth = new int[0];
+    private int[] undoDestination = new int[0];
+    private byte[] undoFlags = new byte[0];
+
+    /**
+     * Sets this board up from a decoded request.
+     */
+    public void load(MoveRequest request) {
+        int longest = 0;
+        for (int i = 0; i < request.snakeCount; i++)
+            longest = Math.max(longest, request.bodyLength[i]);
+        resize(request.width, request.height, request.snakeCount, capacityFor(longest));
+        connect(request.ruleset);
+        turn = request.turn;
+        hazardDamage = request.hazardDamage;
+
+        for (int s = 0; s < snakeCount; s++) {
+            ids[s] = request.snakeIds[s];
+            int start = request.bodyStart[s];
+            int segments = request.bodyLength[s];
+            alive[s] = segments > 0;
+            health[s] = request.health[s];
+            length[s] = segments;
+            head[s] = segments - 1;
+            // oldest segment first so the head ends up at head[s]
+            for (int k = 0; k < segments; k++) {
+                int cell = request.bodyY[start + k] * width + request.bodyX[start + k];
+                ring[s][(segments - 1 - k) & mask] = cell;
+                if (inBounds(request.bodyX[start + k], request.bodyY[start + k]))
+                    occupancy[cell]++;
+            }//for
+        }//for
+
+        for (int i = 0; i < request.foodCount; i++) {
+            if (inBounds(request.foodX[i], request.foodY[i])) {
+                int cell = request.foodY[i] * width + request.foodX[i];
+                if (!food[cell]) {
+                    food[cell] = true;
+                    foodCount++;
+                }
+            }//if
+        }//for
+        for (int i = 0; i < request.hazardCount; i++)
+            if (inBounds(request.hazardX[i], request.hazardY[i]) )
+                stackHazard(request.hazardY[i] * width + request.hazardX[i]);
+        hash = computeHash();
+    }//load
+
+    /**
+     * Brings a board that holds the previous turn of a game up to date with the
+     * request for the next one, changing only what moved.
+     *
+     * Between two turns a snake gains a head, loses its tail unless it ate, and
+     * may die; food goes where it is eaten and comes where it spawns. Those
+     * changes are applied to the ring buffers, occupancy and hash in place, so
+     * the cost follows what changed rather than the size of the board. Anything
+     * else, such as a skipped turn, a different board or a body that doesn't
+     * follow on from the last one, means the board is out of step and it is
+     * loaded from scratch.
+     *
+     * @return true if the changes were applied in place, false if the board was
+     *         loaded from scratch.
+     */
+    public boolean update(MoveRequest request) {
+        plies = 0;
+        if (applyChanges(request))
+            return true;
+        load(request);
+        return false;
+    }//update
+
+    /**
+     * @return false as soon as the request doesn't follow on from this board,
+     *         which may be left half changed.
+     */
+    private boolean applyChanges(MoveRequest request) {
+        if (cells == 0 || request.turn != turn + 1 || request.width != width || request.height != height
+                || request.ruleset != rules)
+            return false;
+
+        // the engine drops dead snakes and keeps the others in order
+        int matched = 0;
+        for (int s = 0; s < snakeCount;) {
+            if (matched < request.snakeCount && ids[s].equals(request.snakeIds[matched])) {
+                s++;
+                matched++;
+            } else {
+                remove(s);
+            }
+        }//for
+        if (snakeCount != request.snakeCount)
+            return false;
+
+        for (int s = 0; s < snakeCount; s++)
+            if (!alive[s] || !followOn(request, s))
+                return false;
+
+        // food only goes when a head lands on it
+        for (int s = 0; s < snakeCount; s++) {
+            int cell = headCell(s);
+            if (food[cell]) {
+                food[cell] = false;
+                foodCount--;
+                hash ^= Zobrist.food(cell);
+            }
+        }//for
+        for (int i = 0; i < request.foodCount; i++) {
+            if (!inBounds(request.foodX[i], request.foodY[i]))
+                return false;
+            placeFood(request.foodY[i] * width + request.foodX[i]);
+        }//for
+        if (foodCount != request.foodCount)
+            return false;
+
+        // hazards come and go as the map likes, so take them as they are sent
+        if (hazardCount > 0 || request.hazardCount > 0) {
+            clearHazards();
+            for (int i = 0; i < request.hazardCount; i++) {
+                if (!inBounds(request.hazardX[i], request.hazardY[i]))
+                    return false;
+                placeHazard(request.hazardY[i] * width + request.hazardX[i]);
+            }//for
+        }//if
+        hazardDamage = request.hazardDamage;
+        turn = request.turn;
+        return true;
+    }//applyChanges
+
+    /**
+     * Moves one snake on to its body in the request: pushes the new head, pops
+     * the tail down to the part of the body that isn't stacked, then stacks the
+     * tail again as often as the request does.
+     *
+     * @return false if the new body can't have come from the old one.
+     */
+    private boolean followOn(MoveRequest request, int s) {
+        int start = request.bodyStart[s];
+        int segments = request.bodyLength[s];
+        if (segments < 2 || segments > mask)
+            return false;
+        int x = request.bodyX[start];
+        int y = request.bodyY[start];
+        if (!inBounds(x, y) || cellOf(request, start + 1) != headCell(s))
+            return false;
+        int end = start + segments - 1;
+        int tail = cellOf(request, end);
+        int stacked = 0;
+        while (stacked < segments - 2 && cellOf(request, end - stacked - 1) == tail)
+            stacked++;
+        int unstacked = segments - stacked;
+
+        int newHead = y * width + x;
+        hash ^= Zobrist.head(s, headCell(s)) ^ Zobrist.head(s, newHead) ^ Zobrist.body(s, newHead)
+                ^ Zobrist.length(s, length[s]) ^ Zobrist.health(s, health[s]);
+        head[s] = (head[s] + 1) & mask;
+        ring[s][head[s]] = newHead;
+        occupancy[newHead]++;
+        length[s]++;
+        if (length[s] < unstacked)
+            return false;
+        while (length[s] > unstacked) {
+            int popped = tailCell(s);
+            occupancy[popped]--;
+            hash ^= Zobrist.body(s, popped);
+            length[s]--;
+        }//while
+        if (tailCell(s) != tail)
+            return false;
+        for (int k = 0; k < stacked; k++) {
+            ring[s][(head[s] - length[s]) & mask] = tail;
+            occupancy[tail]++;
+            hash ^= Zobrist.body(s, tail);
+            length[s]++;
+        }//for
+        health[s] = request.health[s];
+        hash ^= Zobrist.length(s, length[s]) ^ Zobrist.health(s, health[s]);
+        return true;
+    }//followOn
+
+    private int cellOf(MoveRequest request, int segment) {
+        return request.bodyY[segment] * width + request.bodyX[segment];
+    }
+
+    /**
+     * Takes a snake off the board. The ones after it move down an index, and
+     * since the hash keys depend on the index, their part of the hash is redone.
+     */
+    private void remove(int snake) {
+        for (int s = snake; s < snakeCount; s++)
+            if (alive[s])
+                hash ^= hashOf(s);
+        if (alive[snake])
+            for (int k = 0; k < length[snake]; k++)
+                occupancy[segment(snake, k)]--;
+
+        int[] freed = ring[snake];
+        int after = snakeCount - snake - 1;
+        System.arraycopy(alive, snake + 1, alive, snake, after);
+        System.arraycopy(health, snake + 1, health, snake, after);
+        System.arraycopy(length, snake + 1, length, snake, after);
+        System.arraycopy(head, snake + 1, head, snake, after);
+        System.arraycopy(ring, snake + 1, ring, snake, after);
+        System.arraycopy(ids, snake + 1, ids, snake, after);
+        snakeCount--;
+        ring[snakeCount] = freed;
+        ids[snakeCount] = null;
+
+        for (int s = snake; s < snakeCount; s++)
+            if (alive[s])
+                hash ^= hashOf(s);
+    }//remove
+
+    private long hashOf(int s) {
+        long h = Zobrist.head(s, headCell(s)) ^ Zobrist.length(s, length[s]) ^ Zobrist.health(s, health[s]);
+        for (int k = 0; k < length[s]; k++)
+            h ^= Zobrist.body(s, segment(s, k));
+        return h;
+    }
+
+    /**
+     * Makes this board an exact copy of another, reusing the arrays when they
+     * are big enough.
+     */
+    public SearchBoard copyFrom(SearchBoard other) {
+        if (width != other.width || height != other.height || snakeCount != other.snakeCount
+                || mask != other.mask)
+            resize(other.width, other.height, other.snakeCount, other.mask + 1);
+        rules = other.rules;
+        neighbours = other.neighbours;
+        plies = 0;
+        turn = other.turn;
+        foodCount = other.foodCount;
+        hazardCount = other.hazardCount;
+        hazardDamage = other.hazardDamage;
+        hash = other.hash;
+        System.arraycopy(other.alive, 0, alive, 0, snakeCount);
+        System.arraycopy(other.health, 0, health, 0, snakeCount);
+        System.arraycopy(other.length, 0, length, 0, snakeCount);
+        System.arraycopy(other.head, 0, head, 0, snakeCount);
+        System.arraycopy(other.ids, 0, ids, 0, snakeCount);
+        for (int s = 0; s < snakeCount; s++)
+            System.arraycopy(other.ring[s], 0, ring[s], 0, ring[s].length);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, cells);
+        System.arraycopy(other.food, 0, food, 0, cells);
+        System.arraycopy(other.hazards, 0, hazards, 0, cells);
+        return this;
+    }//copyFrom
+
+    /**
+     * @return a power of two ring size with room for a body to grow during a search.
+     */
+    private static int capacityFor(int longest) {
+        return Integer.highestOneBit(Math.max(longest + 32, 64) - 1) << 1;
+    }
+
+    private void resize(int width, int height, int snakes, int capacity) {
+        this.width = width;
+        this.height = height;
+        this.cells = width * height;
+        this.snakeCount = snakes;
+        this.mask = capacity - 1;
+        if (alive.length < snakes) {
+            alive = new boolean[snakes];
+            health = new int[snakes];
+            length = new int[snakes];
+            head = new int[snakes];
+            newHeads = new int[snakes];
+            eliminated = new boolean[snakes];
+            ids = new String[snakes];
+        }
+        if (ring.length < snakes || ring.length == 0 || ring[0].length != capacity)
+            ring = new int[Math.max(snakes, ring.length)][capacity];
+        if (occupancy.length < cells) {
+            occupancy = new byte[cells];
+            food = new boolean[cells];
+            hazards = new byte[cells];
+        } else {
+            Arrays.fill(occupancy, 0, cells, (byte) 0);
+            Arrays.fill(food, 0, cells, false);
+            Arrays.fill(hazards, 0, cells, (byte) 0);
+        }
+        foodCount = 0;
+        hazardCount = 0;
+        plies = 0;
+    }//resize
+
+    /**
+     * Looks up how the squares of a board this size connect under the rules.
+     */
+    private void connect(Ruleset rules) {
+        this.rules = rules;
+        neighbours = rules.neighbours(width, height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSnakeCount() {
+        return snakeCount;
+    }
+
+    public boolean isAlive(int snake) {
+        return alive[snake];
+    }
+
+    public int getHealth(int snake) {
+        return health[snake];
+    }
+
+    public int getLength(int snake) {
+        return length[snake];
+    }
+
+    /**
+     * @return the Zobrist hash of the position.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Hashes the position from scratch. {@link #getHash()} should always agree with it.
+     */
+    long computeHash() {
+        long h = 0;
+        for (int s = 0; s < snakeCount; s++)
+            if (alive[s])
+                h ^= hashOf(s);
+        for (int cell = 0; cell < cells; cell++)
+            if (food[cell])
+                h ^= Zobrist.food(cell);
+        for (int cell = 0; cell < cells; cell++)
+            if (hazards[cell] > 0)
+                h ^= Zobrist.hazard(cell, hazards[cell]);
+        return h;
+    }//computeHash
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public int headCell(int snake) {
+        return ring[snake][head[snake]];
+    }
+
+    public int tailCell(int snake) {
+        return ring[snake][(head[snake] - length[snake] + 1) & mask];
+    }
+
+    /**
+     * @return segment {@code k} of a snake, 0 being the head.
+     */
+    public int segment(int snake, int k) {
+        return ring[snake][(head[snake] - k) & mask];
+    }
+
+    /**
+     * @return how many living snakes other than {@code snake} are left.
+     */
+    public int opponentsAlive(int snake) {
+        int count = 0;
+        for (int s = 0; s < snakeCount; s++)
+            if (s != snake && alive[s])
+                count++;
+        return count;
+    }
+
+    /**
+     * @return the square a snake's head lands on for a move, or -1 if it leaves the board.
+     */
+    public int destination(int snake, int move) {
+        return neighbours[(headCell(snake) << 2) | move];
+    }
+
+    /**
+     * @return the move that brought a snake's head from its neck, across an
+     *         edge too on a wrapped board, or -1 if the neck is under the head
+     *         as at the start of a game.
+     */
+    public int heading(int snake) {
+        if (length[snake] < 2)
+            return -1;
+        int head = headCell(snake);
+        int neck = segment(snake, 1);
+        for (int move = 0; move < 4; move++)
+            if (neighbours[(neck << 2) | move] == head)
+                return move;
+        return -1;
+    }//heading
+
+    /**
+     * @return the square next to {@code cell} in the direction of a move, or -1
+     *         past a wall.
+     */
+    public int neighbour(int cell, int move) {
+        return neighbours[(cell << 2) | move];
+    }
+
+    /**
+     * @return the fewest moves between two squares under the rules, ignoring bodies.
+     */
+    public int distance(int from, int to) {
+        return rules.distance(width, height, from, to);
+    }
+
+    public Ruleset getRules() {
+        return rules;
+    }
+
+    /**
+     * Cheap look at whether a move can survive on its own: it stays on the board,
+     * doesn't end in a hazard that would finish the snake off and doesn't run
+     * into a body, counting tails that will move out of the way as free.
+     * Head-to-head outcomes depend on the other snakes and are left to {@link #step(int[])}.
+     */
+    public boolean isSafe(int snake, int move) {
+        int cell = destination(snake, move);
+        if (cell < 0)
+            return false;
+        if (hazards[cell] > 0 && !food[cell] && health[snake] <= 1 + hazardDamage * hazards[cell])
+            return false;
+        int taken = occupancy[cell];
+        if (taken == 0)
+            return true;
+        // a tail that is not stacked will be gone by the time we get there
+        for (int s = 0; s < snakeCount; s++) {
+            if (alive[s] && length[s] > 1 && tailCell(s) == cell
+                    && segment(s, length[s] - 2) != cell)
+                taken--;
+        }//for
+        return taken == 0;
+    }//isSafe
+
+    /**
+     * @return true if the square has food on it.
+     */
+    public boolean hasFood(int cell) {
+        return food[cell];
+    }
+
+    /**
+     * Puts food on an empty square, as the rules do between turns.
+     */
+    public void placeFood(int cell) {
+        if (food[cell])
+            return;
+        food[cell] = true;
+        foodCount++;
+        hash ^= Zobrist.food(cell);
+    }
+
+    /**
+     * @return true if no snake is on the square.
+     */
+    public boolean isEmpty(int cell) {
+        return occupancy[cell] == 0;
+    }
+
+    public boolean isHazard(int cell) {
+        return hazards[cell] > 0;
+    }
+
+    /**
+     * @return the health a snake loses for ending a turn on the square without
+     *         eating, on top of the usual point.
+     */
+    public int hazardDamage(int cell) {
+        return hazardDamage * hazards[cell];
+    }
+
+    /**
+     * Adds a hazard to a square, on top of any already there, as maps and the
+     * royale rules do between turns.
+     */
+    public void placeHazard(int cell) {
+        if (hazards[cell] > 0)
+            hash ^= Zobrist.hazard(cell, hazards[cell]);
+        stackHazard(cell);
+        hash ^= Zobrist.hazard(cell, hazards[cell]);
+    }
+
+    private void stackHazard(int cell) {
+        if (hazards[cell] == Byte.MAX_VALUE)
+            return;
+        hazards[cell]++;
+        hazardCount++;
+    }
+
+    private void clearHazards() {
+        for (int cell = 0; cell < cells && hazardCount > 0; cell++) {
+            if (hazards[cell] == 0)
+                continue;
+            hash ^= Zobrist.hazard(cell, hazards[cell]);
+            hazardCount -= hazards[cell];
+            hazards[cell] = 0;
+        }//for
+    }//clearHazards
+
+    /**
+     * Plays one turn: every living snake moves at once, loses a point of health
+     * and whatever damage a hazard under its head deals, eats, and then
+     * starvation, walls, bodies and head-to-heads are resolved. No new food is
+     * spawned and the hazards stay where they are.
+     *
+     * @param moves the move of every snake, indexed like the snakes. Entries for
+     *              dead snakes are ignored.
+     */
+    public void step(int[] moves) {
+        turn++;
+        for (int s = 0; s < snakeCount; s++) {
+            eliminated[s] = false;
+            if (!alive[s])
+                continue;
+            newHeads[s] = destination(s, moves[s]);
+            int tail = tailCell(s);
+            occupancy[tail]--;
+            hash ^= Zobrist.body(s, tail) ^ Zobrist.length(s, length[s]) ^ Zobrist.length(s, length[s] - 1)
+                    ^ Zobrist.health(s, health[s]) ^ Zobrist.health(s, health[s] - 1);
+            length[s]--;
+            health[s]--;
+        }//for
+
+        for (int s = 0; s < snakeCount; s++) {
+            if (!alive[s] || newHeads[s] < 0)
+                continue;
+            if (length[s] > mask)
+                grow();
+            hash ^= Zobrist.head(s, headCell(s)) ^ Zobrist.head(s, newHeads[s]) ^ Zobrist.body(s, newHeads[s])
+                    ^ Zobrist.length(s, length[s]) ^ Zobrist.length(s, length[s] + 1);
+            head[s] = (head[s] + 1) & mask;
+            ring[s][head[s]] = newHeads[s];
+            length[s]++;
+            occupancy[newHeads[s]]++;
+        }//for
+
+        // food under a hazard heals before it can hurt
+        if (hazardCount > 0) {
+            for (int s = 0; s < snakeCount; s++) {
+                int cell = newHeads[s];
+                if (!alive[s] || cell < 0 || hazards[cell] == 0 || food[cell])
+                    continue;
+                int hurt = Math.max(0, health[s] - hazardDamage * hazards[cell]);
+                hash ^= Zobrist.health(s, health[s]) ^ Zobrist.health(s, hurt);
+                health[s] = hurt;
+            }//for
+        }//if
+
+        for (int s = 0; s < snakeCount; s++) {
+            int cell = newHeads[s];
+            if (!alive[s] || cell < 0 || !food[cell])
+                continue;
+            int tail = tailCell(s);
+            hash ^= Zobrist.health(s, health[s]) ^ Zobrist.health(s, MAX_HEALTH) ^ Zobrist.body(s, tail)
+                    ^ Zobrist.length(s, length[s]) ^ Zobrist.length(s, length[s] + 1);
+            health[s] = MAX_HEALTH;
+            if (length[s] > mask)
+                grow();
+            ring[s][(head[s] - length[s]) & mask] = tail;
+            length[s]++;
+            occupancy[tail]++;
+        }//for
+        for (int s = 0; s < snakeCount; s++) {
+            int cell = newHeads[s];
+            if (alive[s] && cell >= 0 && food[cell]) {
+                food[cell] = false;
+                foodCount--;
+                hash ^= Zobrist.food(cell);
+            }
+        }//for
+
+        // starvation and walls first, those snakes don't take part in collisions
+        for (int s = 0; s < snakeCount; s++) {
+            if (alive[s] && (newHeads[s] < 0 || health[s] <= 0))
+                eliminate(s);
+        }//for
+
+        for (int s = 0; s < snakeCount; s++) {
+            if (!alive[s])
+                continue;
+            int cell = newHeads[s];
+            int heads = 0;
+            for (int o = 0; o < snakeCount; o++) {
+                if (!alive[o] || newHeads[o] != cell)
+                    continue;
+                heads++;
+                if (o != s && length[s] <= length[o])
+                    eliminated[s] = true;
+            }//for
+            if (occupancy[cell] > heads)
+                eliminated[s] = true;
+        }//for
+        for (int s = 0; s < snakeCount; s++) {
+            if (eliminated[s])
+                eliminate(s);
+        }//for
+    }//step
+
+    /**
+     * Plays one turn like {@link #step(int[])}, remembering enough to take it
+     * back with {@link #undo()}.
+     */
+    public void applyJointMove(int[] moves) {
+        int frame = plies * snakeCount;
+        if (frame + snakeCount > undoFlags.length || plies == undoHash.length)
+            growUndo(frame + snakeCount);
+        undoHash[plies] = hash;
+        for (int s = 0; s < snakeCount; s++) {
+            int i = frame + s;
+            undoFlags[i] = 0;
+            if (!alive[s])
+                continue;
+            int cell = destination(s, moves[s]);
+            undoTail[i] = tailCell(s);
+            undoHealth[i] = health[s];
+            undoDestination[i] = cell;
+            undoFlags[i] = cell >= 0 && food[cell] ? WAS_ALIVE | ATE : WAS_ALIVE;
+        }//for
+        step(moves);
+        for (int s = 0; s < snakeCount; s++)
+            if (undoFlags[frame + s] != 0 && !alive[s])
+                undoFlags[frame + s] |= DIED;
+        plies++;
+    }//applyJointMove
+
+    /**
+     * Takes back the last turn played with {@link #applyJointMove(int[])}.
+     * Heads are moved back relative to the ring, so a ring that grew during the
+     * turn is no problem.
+     */
+    public void undo() {
+        plies--;
+        int frame = plies * snakeCount;
+        for (int s = 0; s < snakeCount; s++) {
+            int i = frame + s;
+            int flags = undoFlags[i];
+            if (flags == 0)
+                continue;
+            if ((flags & DIED) != 0) {
+                alive[s] = true;
+                for (int k = 0; k < length[s]; k++)
+                    occupancy[segment(s, k)]++;
+            }
+            int cell = undoDestination[i];
+            if ((flags & ATE) != 0) {
+                if (!food[cell]) {
+                    food[cell] = true;
+                    foodCount++;
+                }
+                // the tail that was stacked on
+                occupancy[tailCell(s)]--;
+                length[s]--;
+            }//if
+            if (cell >= 0) {
+                occupancy[cell]--;
+                head[s] = (head[s] - 1) & mask;
+                length[s]--;
+            }
+            length[s]++;
+            ring[s][(head[s] - length[s] + 1) & mask] = undoTail[i];
+            occupancy[undoTail[i]]++;
+            health[s] = undoHealth[i];
+        }//for
+        hash = undoHash[plies];
+        turn--;
+    }//undo
+
+    private void growUndo(int entries) {
+        int size = Math.max(entries, undoFlags.length * 2);
+        undoTail = Arrays.copyOf(undoTail, size);
+        undoHealth = Arrays.copyOf(undoHealth, size);
+        undoDestination = Arrays.copyOf(undoDestination, size);
+        undoFlags = Arrays.copyOf(undoFlags, size);
+        undoHash = Arrays.copyOf(undoHash, Math.max(plies + 1, undoHash.length * 2));
+    }
+
+    private void eliminate(int snake) {
+        alive[snake] = false;
+        hash ^= Zobrist.head(snake, headCell(snake)) ^ Zobrist.length(snake, length[snake])
+                ^ Zobrist.health(snake, health[snake]);
+        for (int k = 0; k < length[snake]; k++) {
+            int cell = segment(snake, k);
+            occupancy[cell]--;
+            hash ^= Zobrist.body(snake, cell);
+        }//for
+    }//eliminate
+
+    /**
+     * Doubles every ring buffer, keeping each body in place relative to its head.
+     */
+    private void grow() {
+        int capacity = (mask + 1) * 2;
+        for (int s = 0; s < snakeCount; s++) {
+            int[] bigger = new int[capacity];
+            for (int k = 0; k < length[s]; k++)
+                bigger[(length[s] - 1 - k)] = segment(s, k);
+            ring[s] = bigger;
+            head[s] = length[s] - 1;
+        }//for
+        mask = capacity - 1;
+    }//grow
+
+}
@@ -0,0 +1,74 @@
+package com.battlesnake.starter;
+
+/**
+ * Picks a move by looking ahead on a {@link SearchBoard}.
+ * 
+ * Engines are free to keep scratch buffers between calls, so an instance must
+ * only be used by one game at a time. {@link GameState} owns one per game.
+ */
+public interface SearchEngine {
+
+    /**
+     * Searches until the deadline and returns the best move of the deepest
+     * completed iteration.
+     *
+     * @param root          the position to move from. Engines must not change it.
+     * @param you           the index of our snake on the board.
+     * @param deadlineNanos {@link System#nanoTime()} value at which to stop.
+     * @return the result, with a depth of 0 if not even one ply finished in time.
+     */
+    default SearchResult search(SearchBoard root, int you, long deadlineNanos) {
+        return search(root, you, deadlineNanos, null);
+    }
+
+    /**
+     * Same as {@link #search(SearchBoard, int, long)}, but also reports the best
+     * move after every completed iteration, so a caller that can't wait for the
+     * whole search still has the deepest answer so far.
+     *
+     * @param progress told about every completed iteration, or null.
+     */
+    SearchResult search(SearchBoard root, int you, long deadlineNanos, Progress progress);
+
+    /**
+     * Hears about the best move so far while a search runs.
+     */
+    interface Progress {
+
+        /**
+         * Called on the searching thread after each completed iteration.
+         *
+         * @param move  the best move of the iteration, 0 up to 3 right.
+         * @param depth the turns it looked ahead.
+         */
+        void improved(int move, int depth);
+    }
+
+    /**
+     * Builds the engine picked with the ENGINE system property.
+     *
+     * @param name the engine name, "parallel", "paranoid", "mcts" or "greedy".
+     * @return the engine, or null for the plain greedy logic in {@link GameState}.
+     */
+    static SearchEngine forName(String name) {
+        return forName(name, null);
+    }
+
+    /**
+     * Same as {@link #forName(String)} for an engine that prunes with an opponent model.
+     *
+     * @param opponents the game's model, or null to search every reply.
+     */
+    static SearchEngine forName(String name, OpponentModel opponents) {
+        if (name == null || name.equals("parallel"))
+            return ParallelSearch.THREADS > 1 ? new ParallelSearch(opponents) : new ParanoidSearch(opponents);
+        if (name.equals("paranoid"))
+            return new ParanoidSearch(opponents);
+        if (name.equals("mcts"))
+            return new MonteCarloSearch();
+        if (name.equals("greedy"))
+            return null;
+        throw new IllegalArgumentException("Unknown search engine: " + name);
+    }
+
+}
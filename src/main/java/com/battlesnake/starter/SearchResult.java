@@ -0,0 +1,42 @@
+package com.battlesnake.starter;
+
+/**
+ * What a {@link SearchEngine} found.
+ */
+public class SearchResult {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+
+    public SearchResult(int move, int score, int depth, long nodes) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return the move index, 0 up, 1 down, 2 left, 3 right.
+     */
+    public int getMove() {
+        return move;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the deepest fully searched depth in turns, 0 if none finished.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+}
@@ -0,0 +1,490 @@
+package com.battlesnake.starter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Plays whole games locally under the standard, wrapped or royale rules, for
+ * self-play and for load testing the server.
+ *
+ * Turns are played on a {@link SearchBoard}, which already knows movement,
+ * growth, starvation, walls, hazards, bodies and head-to-heads; this class adds
+ * the starting layout, food spawning and the royale's spreading hazard, and
+ * builds the same requests the real
+ * engine sends. Every random choice comes from the seed of the game, so the
+ * same seed and the same snakes give the same game. Snakes searching against
+ * the clock aren't deterministic themselves; use {@code -DENGINE=greedy} to
+ * compare strategies move for move.
+ *
+ * From the command line it plays many games at once, against in-process
+ * {@link Snake.Handler}s or against running servers:
+ *
+ * <pre>
+ * java -DENGINE=greedy -cp starter-snake-java.jar com.battlesnake.starter.Simulator \
+ *     --games 1000 --snakes 4 --size 11 --seed 7 --threads 4 --rules royale
+ * java -cp ... Simulator --url http://localhost:8080 --games 200 --rate 5
+ * </pre>
+ */
+public class Simulator {
+
+    public static final int MAX_TURNS = 5000;
+    public static final int MAX_SNAKES = 8;
+
+    private static final int FOOD_SPAWN_CHANCE = 15;
+    private static final int MINIMUM_FOOD = 1;
+    private static final int START_LENGTH = 3;
+    private static final String[] MOVES = { "up", "down", "left", "right" };
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    /**
+     * Answers the requests for one snake.
+     */
+    public interface Player {
+        void start(byte[] body) throws IOException;
+
+        String move(byte[] body) throws IOException;
+
+        void end(byte[] body) throws IOException;
+    }
+
+    /**
+     * A snake played by a {@link Snake.Handler} in this JVM.
+     *
+     * Every such snake plays from one store of practice games with metrics of
+     * its own, so self-play records no replays, doesn't show up in the
+     * server's metrics or take up its games' room, and leaves the
+     * {@link PositionCache} and {@link OpponentModel} alone.
+     */
+    public static class HandlerPlayer implements Player {
+        private static final Snake.Handler PRACTICE = new Snake.Handler(
+                new GameStateStore(GameStateStore.DEFAULT_CAPACITY, GameStateStore.DEFAULT_IDLE_MILLIS, false),
+                new Metrics(), null);
+
+        private final Snake.Handler handler = PRACTICE;
+        private final MoveRequestDecoder decoder = new MoveRequestDecoder();
+        private final MoveRequest request = new MoveRequest();
+
+        @Override
+        public void start(byte[] body) throws IOException {
+            handler.start(JSON_MAPPER.readTree(body));
+        }
+
+        @Override
+        public String move(byte[] body) throws IOException {
+            return handler.move(decoder.decode(body, request)).get("move");
+        }
+
+        @Override
+        public void end(byte[] body) throws IOException {
+            handler.end(JSON_MAPPER.readTree(body));
+        }
+    }
+
+    /**
+     * A snake played by a server over HTTP.
+     */
+    public static class HttpPlayer implements Player {
+        private final String base;
+        private final int timeoutMillis;
+
+        /**
+         * @param base e.g. http://localhost:8080
+         */
+        public HttpPlayer(String base, int timeoutMillis) {
+            this.base = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public void start(byte[] body) throws IOException {
+            post("/start", body);
+        }
+
+        @Override
+        public String move(byte[] body) throws IOException {
+            return JSON_MAPPER.readTree(post("/move", body)).path("move").asText();
+        }
+
+        @Override
+        public void end(byte[] body) throws IOException {
+            post("/end", body);
+        }
+
+        private byte[] post(String path, byte[] body) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                byte[] buffer = new byte[1024];
+                for (int read; (read = in.read(buffer)) > 0;)
+                    reply.write(buffer, 0, read);
+                return reply.toByteArray();
+            }
+        }//post
+    }
+
+    /**
+     * How a game went.
+     */
+    public static class Result {
+        /** index of the last snake standing, or -1 for a draw or a solo game */
+        public final int winner;
+        public final int turns;
+        /** moves that failed or came back unreadable and were played as "up" */
+        public final int errors;
+
+        Result(int winner, int turns, int errors) {
+            this.winner = winner;
+            this.turns = turns;
+            this.errors = errors;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int timeout;
+    private final Ruleset rules;
+    private final int shrinkEvery;
+
+    public Simulator(int width, int height, int timeout) {
+        this(width, height, timeout, Ruleset.STANDARD, Ruleset.SHRINK_EVERY);
+    }
+
+    /**
+     * @param shrinkEvery turns between shrinks of a royale board.
+     */
+    public Simulator(int width, int height, int timeout, Ruleset rules, int shrinkEvery) {
+        this.width = width;
+        this.height = height;
+        this.timeout = timeout;
+        this.rules = rules;
+        this.shrinkEvery = shrinkEvery;
+    }
+
+    /**
+     * Plays one game to the end.
+     *
+     * @param players one per snake, at most {@link #MAX_SNAKES}.
+     */
+    public Result play(String gameId, List<Player> players, long seed) throws IOException {
+        return play(gameId, players, seed, MAX_TURNS);
+    }
+
+    /**
+     * Plays one game, stopping early after {@code maxTurns} turns.
+     */
+    public Result play(String gameId, List<Player> players, long seed, int maxTurns) throws IOException {
+        int snakes = players.size();
+        if (snakes < 1 || snakes > MAX_SNAKES)
+            throw new IllegalArgumentException("Between 1 and " + MAX_SNAKES + " snakes, not " + snakes);
+        Random random = new Random(seed);
+        SearchBoard board = setUp(snakes, random);
+
+        for (int s = 0; s < snakes; s++)
+            players.get(s).start(request(gameId, board, s));
+
+        int[] moves = new int[snakes];
+        int errors = 0;
+        while (board.turn < maxTurns && !over(board, snakes)) {
+            for (int s = 0; s < snakes; s++) {
+                if (!board.isAlive(s))
+                    continue;
+                moves[s] = 0;
+                try {
+                    int move = moveIndex(players.get(s).move(request(gameId, board, s)));
+                    if (move < 0)
+                        errors++;
+                    else
+                        moves[s] = move;
+                } catch (IOException e) {
+                    errors++;
+                }
+            }//for
+            board.step(moves);
+            spawnFood(board, random);
+            rules.spreadHazards(board, shrinkEvery, random);
+        }//while
+
+        for (int s = 0; s < snakes; s++)
+            players.get(s).end(request(gameId, board, s));
+
+        int winner = -1;
+        if (snakes > 1)
+            for (int s = 0; s < snakes; s++)
+                if (board.isAlive(s))
+                    winner = s;
+        return new Result(winner, board.turn, errors);
+    }//play
+
+    private static boolean over(SearchBoard board, int snakes) {
+        int alive = 0;
+        for (int s = 0; s < snakes; s++)
+            if (board.isAlive(s))
+                alive++;
+        return snakes == 1 ? alive == 0 : alive <= 1;
+    }
+
+    private static int moveIndex(String move) {
+        for (int i = 0; i < MOVES.length; i++)
+            if (MOVES[i].equals(move))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Snakes start stacked on fixed spots near the walls, in a seeded order,
+     * with a piece of food next to each and one in the middle.
+     */
+    private SearchBoard setUp(int snakes, Random random) {
+        int[][] spots = { { 1, 1 }, { width - 2, height - 2 }, { 1, height - 2 }, { width - 2, 1 },
+                { width / 2, 1 }, { width / 2, height - 2 }, { 1, height / 2 }, { width - 2, height / 2 } };
+        for (int i = spots.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int[] swap = spots[i];
+            spots[i] = spots[j];
+            spots[j] = swap;
+        }//for
+
+        MoveRequest request = new MoveRequest();
+        request.ruleset = rules;
+        request.width = width;
+        request.height = height;
+        for (int s = 0; s < snakes; s++) {
+            int snake = request.addSnake();
+            request.health[snake] = SearchBoard.MAX_HEALTH;
+            for (int k = 0; k < START_LENGTH; k++)
+                request.addSegment(snake, spots[s][0], spots[s][1]);
+        }//for
+        SearchBoard board = new SearchBoard();
+        board.load(request);
+
+        for (int s = 0; s < snakes; s++) {
+            int dx = random.nextBoolean() ? 1 : -1;
+            int dy = random.nextBoolean() ? 1 : -1;
+            int x = spots[s][0] + dx;
+            int y = spots[s][1] + dy;
+            if (board.inBounds(x, y) && board.isEmpty(y * width + x))
+                board.placeFood(y * width + x);
+        }//for
+        int centre = height / 2 * width + width / 2;
+        if (board.isEmpty(centre))
+            board.placeFood(centre);
+        return board;
+    }//setUp
+
+    /**
+     * Tops the food up to the minimum, or else spawns one with a small chance.
+     */
+    private static void spawnFood(SearchBoard board, Random random) {
+        int wanted = 0;
+        if (board.foodCount < MINIMUM_FOOD)
+            wanted = MINIMUM_FOOD - board.foodCount;
+        else if (random.nextInt(100) < FOOD_SPAWN_CHANCE)
+            wanted = 1;
+        if (wanted == 0)
+            return;
+
+        int free = 0;
+        for (int cell = 0; cell < board.cells; cell++)
+            if (board.isEmpty(cell) && !board.hasFood(cell))
+                free++;
+        for (; wanted > 0 && free > 0; wanted--, free--) {
+            int pick = random.nextInt(free);
+            for (int cell = 0; cell < board.cells; cell++) {
+                if (!board.isEmpty(cell) || board.hasFood(cell))
+                    continue;
+                if (pick-- == 0) {
+                    board.placeFood(cell);
+                    break;
+                }
+            }//for
+        }//for
+    }//spawnFood
+
+    /**
+     * Builds the request the engine would send one of the snakes.
+     */
+    byte[] request(String gameId, SearchBoard board, int you) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeObjectFieldStart("game");
+            json.writeStringField("id", gameId);
+            json.writeNumberField("timeout", timeout);
+            ruleset(json);
+            json.writeEndObject();
+            json.writeNumberField("turn", board.turn);
+
+            json.writeObjectFieldStart("board");
+            json.writeNumberField("height", height);
+            json.writeNumberField("width", width);
+            json.writeArrayFieldStart("food");
+            for (int cell = 0; cell < board.cells; cell++)
+                if (board.hasFood(cell))
+                    point(json, cell);
+            json.writeEndArray();
+            json.writeArrayFieldStart("hazards");
+            for (int cell = 0; cell < board.cells; cell++)
+                for (int k = board.hazards[cell]; k > 0; k--)
+                    point(json, cell);
+            json.writeEndArray();
+            json.writeArrayFieldStart("snakes");
+            for (int s = 0; s < board.snakeCount; s++)
+                if (board.isAlive(s))
+                    snake(json, board, s);
+            json.writeEndArray();
+            json.writeEndObject();
+
+            json.writeFieldName("you");
+            snake(json, board, you);
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }//request
+
+    private void ruleset(JsonGenerator json) throws IOException {
+        json.writeObjectFieldStart("ruleset");
+        json.writeStringField("name", rules.getName());
+        json.writeStringField("version", "v1.0.0");
+        json.writeObjectFieldStart("settings");
+        json.writeNumberField("foodSpawnChance", FOOD_SPAWN_CHANCE);
+        json.writeNumberField("minimumFood", MINIMUM_FOOD);
+        json.writeNumberField("hazardDamagePerTurn", Ruleset.HAZARD_DAMAGE);
+        json.writeObjectFieldStart("royale");
+        json.writeNumberField("shrinkEveryNTurns", shrinkEvery);
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeEndObject();
+    }//ruleset
+
+    private void snake(JsonGenerator json, SearchBoard board, int s) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", "snake-" + s);
+        json.writeStringField("name", "snake-" + s);
+        json.writeNumberField("health", Math.max(0, board.getHealth(s)));
+        json.writeArrayFieldStart("body");
+        for (int k = 0; k < board.getLength(s); k++)
+            point(json, board.segment(s, k));
+        json.writeEndArray();
+        json.writeFieldName("head");
+        point(json, board.headCell(s));
+        json.writeNumberField("length", board.getLength(s));
+        json.writeStringField("shout", "");
+        json.writeEndObject();
+    }//snake
+
+    private void point(JsonGenerator json, int cell) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("x", cell % width);
+        json.writeNumberField("y", cell / width);
+        json.writeEndObject();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 100;
+        int snakes = 4;
+        int size = 11;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double rate = 0;
+        int timeout = 500;
+        Ruleset rules = Ruleset.STANDARD;
+        int shrinkEvery = Ruleset.SHRINK_EVERY;
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "--games": games = Integer.parseInt(value); break;
+            case "--snakes": snakes = Integer.parseInt(value); break;
+            case "--size": size = Integer.parseInt(value); break;
+            case "--seed": seed = Long.parseLong(value); break;
+            case "--threads": threads = Integer.parseInt(value); break;
+            case "--rate": rate = Double.parseDouble(value); break;
+            case "--timeout": timeout = Integer.parseInt(value); break;
+            case "--url": urls.add(value); break;
+            case "--rules": rules = Ruleset.forName(value); break;
+            case "--shrink": shrinkEvery = Integer.parseInt(value); break;
+            default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }//for
+
+        Simulator simulator = new Simulator(size, size, timeout, rules, shrinkEvery);
+        AtomicLongArray wins = new AtomicLongArray(snakes);
+        AtomicInteger draws = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong turns = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor();
+        long started = System.nanoTime();
+
+        for (int g = 0; g < games; g++) {
+            final int game = g;
+            final int players = snakes;
+            final long gameSeed = seed * 1_000_003L + g;
+            final int httpTimeout = timeout * 2;
+            Runnable task = () -> {
+                List<Player> seats = new ArrayList<>();
+                for (int s = 0; s < players; s++)
+                    seats.add(urls.isEmpty() ? new HandlerPlayer()
+                            : new HttpPlayer(urls.get(s % urls.size()), httpTimeout));
+                try {
+                    Result result = simulator.play("sim-" + gameSeed + "-" + game, seats, gameSeed);
+                    if (result.winner >= 0)
+                        wins.incrementAndGet(result.winner);
+                    else
+                        draws.incrementAndGet();
+                    turns.addAndGet(result.turns);
+                    errors.addAndGet(result.errors);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+            };
+            if (rate > 0)
+                pacer.schedule(() -> workers.execute(task), (long) (g * 1e9 / rate), TimeUnit.NANOSECONDS);
+            else
+                workers.execute(task);
+        }//for
+
+        pacer.shutdown();
+        pacer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double minutes = (System.nanoTime() - started) / 60e9;
+
+        int played = games - failed.get();
+        System.out.printf("games %d (%d failed), %.0f games/min, %.1f turns/game, %d bad moves%n", played,
+                failed.get(), played / minutes, played == 0 ? 0.0 : turns.get() / (double) played, errors.get());
+        for (int s = 0; s < snakes; s++)
+            System.out.printf("snake-%d won %d%n", s, wins.get(s));
+        System.out.printf("draws %d%n", draws.get());
+        System.exit(0);
+    }//main
+
+}
@@ -3,13 +3,15 @@ package com.battlesnake.starter;
 import static spark.Spark.get;
 import static spark.Spark.port;
 import static spark.Spark.post;
+import static spark.Spark.put;
+import static spark.Spark.threadPool;
 
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,27 +30,41 @@ import spark.Response;
  */
 public class Snake {
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
-    private static final Handler HANDLER = new Handler();
     private static final Logger LOG = LoggerFactory.getLogger(Snake.class);
-    private static ArrayList<Integer> FOOD_DIS = new ArrayList<Integer>();
-    private static int width;
-	private static int height;
-    private static String nearestFoodMap = null;
-    private static LinkedList<JsonNode> criticalSnakes;
-    private static Point nearestFoodLocation;
-    private static int currentMapStep = 0;
-    private static final Point HEAD_LOCATION = new Point();
-    private static final String[] POSSIBLE_MOVES = { "up", "down", "left", "right" };
-    private static boolean foodTargeted = false;
-    private static final Point NEAREST_FOOD_DIS = new Point();
-    private static final ArrayList<Point> BODY_LOCATIONS = new ArrayList<Point>();
+    private static final GameStateStore GAMES = new GameStateStore();
+    private static final MoveRequestDecoder MOVE_DECODER = new MoveRequestDecoder();
+    private static final long SEARCH_BUDGET_NANOS = Long.getLong("SEARCH_BUDGET_MS", 350L) * 1_000_000L;
+    /**
+     * Left between the end of a search and the answer being due, for handing the
+     * move back and for searches that notice the deadline a little late.
+     */
+    private static final long HANDOFF_NANOS = 5_000_000L;
+    private static final Metrics METRICS = new Metrics();
+    private static final ReplayRecorder RECORDER = ReplayRecorder.fromProperties();
+    private static final ComputePool COMPUTE = new ComputePool();
+    // after everything the handler takes from the server
+    private static final Handler HANDLER = new Handler();
+
+    /**
+     * How long to play {@link WarmUp} games for before taking real ones, 0 for none.
+     */
+    private static final long WARMUP_MILLIS = Long.getLong("WARMUP_MS", 5000L);
 
     /**
      * Main entry point.
      *
+     * With the WARMUP_ONLY system property set it warms up and exits without
+     * serving, which is how the class data sharing archive is made.
+     *
      * @param args are ignored.
      */
     public static void main(String[] args) {
+        // Spark only starts listening once the first route is mapped, so the
+        // port stays closed, and the dyno starting, until this is done
+        if (WARMUP_MILLIS > 0)
+            WarmUp.run(WARMUP_MILLIS);
+        if (Boolean.getBoolean("WARMUP_ONLY"))
+            System.exit(0);
         String port = System.getProperty("PORT");
         if (port != null) {
             //LOG.info("Found system provided port: {}", port);
@@ -57,11 +73,57 @@ public class Snake {
             port = "8080";
         }
         port(Integer.parseInt(port));
+        // request threads mostly wait for the compute pool, so they can be many and cheap
+        Integer httpThreads = Integer.getInteger("HTTP_THREADS");
+        if (httpThreads != null)
+            threadPool(httpThreads);
+        if (RECORDER != null)
+            Runtime.getRuntime().addShutdownHook(new Thread(RECORDER::closeAll, "replay-flush"));
         get("/", (req, res) -> "Your Battlesnake is alive!");
-        post("/start", HANDLER::process, JSON_MAPPER::writeValueAsString);
-        post("/ping", HANDLER::process, JSON_MAPPER::writeValueAsString);
-        post("/move", HANDLER::process, JSON_MAPPER::writeValueAsString);
-        post("/end", HANDLER::process, JSON_MAPPER::writeValueAsString);
+        get("/metrics", (req, res) -> {
+            res.type("text/plain; version=0.0.4");
+            return METRICS.scrape(GAMES);
+        });
+        put("/games/:game/verbosity/:level", (req, res) -> setVerbosity(req.params("game"), req.params("level")));
+        // Spark writes byte[] bodies as they are, skipping its serializers
+        post("/start", (req, res) -> encode("/start", HANDLER.process(req, res)));
+        post("/ping", (req, res) -> encode("/ping", HANDLER.process(req, res)));
+        post("/move", (req, res) -> encode("/move", HANDLER.process(req, res)));
+        post("/end", (req, res) -> encode("/end", HANDLER.process(req, res)));
+    }
+
+    /**
+     * Changes how much every snake of ours in a running game logs, e.g.
+     * {@code PUT /games/<id>/verbosity/debug} while watching one game closely.
+     *
+     * @return how many of our snakes were changed.
+     */
+    private static String setVerbosity(String gameId, String levelName) {
+        int level = EventLog.level(levelName);
+        if (level < 0)
+            throw new IllegalArgumentException("Unknown log level: " + levelName);
+        String prefix = GameStateStore.key(gameId, "");
+        int[] changed = { 0 };
+        GAMES.forEach((key, state) -> {
+            if (key.startsWith(prefix)) {
+                state.setVerbosity(level);
+                changed[0]++;
+            }
+        });
+        return Integer.toString(changed[0]);
+    }
+
+    /**
+     * Turns a response into its JSON body, usually one encoded at startup by
+     * {@link Responses}, and records how long that took for the route.
+     */
+    private static byte[] encode(String route, Map<String, String> response) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return Responses.encode(response);
+        } finally {
+            METRICS.serialized(route, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -70,9 +132,38 @@ public class Snake {
     public static class Handler {
 
         /**
-         * For the ping request
+         * Jetty reuses its request threads, so each thread can keep decoding into
+         * the same request object.
+         */
+        private static final ThreadLocal<MoveRequest> MOVE_REQUESTS = ThreadLocal.withInitial(MoveRequest::new);
+        private static final ThreadLocal<SearchBoard> FALLBACK_BOARDS = ThreadLocal.withInitial(SearchBoard::new);
+
+        private static final String[] MOVES = { "up", "down", "left", "right" };
+        private static final int[] FALLBACK_ORDER = { 3, 2, 0, 1 };
+
+        private final GameStateStore games;
+        private final Metrics metrics;
+        private final ReplayRecorder recorder;
+
+        /**
+         * A handler for the games the server plays, recording into its metrics
+         * and replays.
          */
-        private static final Map<String, String> EMPTY = new HashMap<>();
+        public Handler() {
+            this(GAMES, METRICS, RECORDER);
+        }
+
+        /**
+         * A handler with games of its own, such as {@link WarmUp}'s, that the
+         * server's metrics and replays never see.
+         *
+         * @param recorder where to record replays, or null for nowhere.
+         */
+        public Handler(GameStateStore games, Metrics metrics, ReplayRecorder recorder) {
+            this.games = games;
+            this.metrics = metrics;
+            this.recorder = recorder;
+        }
 
         /**
          * Generic processor that prints out the request and response from the methods.
@@ -82,31 +173,56 @@ public class Snake {
          * @return
          */
         public Map<String, String> process(Request req, Response res) {
+            long arrived = System.nanoTime();
+            String uri = req.uri();
+            String key = null;
+            MoveRequest moveRequest = null;
             try {
-                JsonNode parsedRequest = JSON_MAPPER.readTree(req.body());
-                String uri = req.uri();
                 //LOG.info("{} called with: {}", uri, req.body());
                 Map<String, String> snakeResponse;
-                if (uri.equals("/start")) {
-                    snakeResponse = start(parsedRequest);
+                byte[] body = null;
+                if (uri.equals("/move")) {
+                    // the hot path skips the JSON tree entirely
+                    body = req.bodyAsBytes();
+                    moveRequest = MOVE_DECODER.decode(body, MOVE_REQUESTS.get());
+                    metrics.parsed(uri, System.nanoTime() - arrived);
+                    key = gameKey(moveRequest);
+                    snakeResponse = move(moveRequest, arrived);
                 } else if (uri.equals("/ping")) {
                     snakeResponse = ping();
-                } else if (uri.equals("/move")) {
-                    snakeResponse = move(parsedRequest);
-                } else if (uri.equals("/end")) {
-                    snakeResponse = end(parsedRequest);
                 } else {
-                    throw new IllegalAccessError("Strange call made to the snake: " + uri);
+                    String text = req.body();
+                    if (recorder != null)
+                        body = text.getBytes(StandardCharsets.UTF_8);
+                    JsonNode parsedRequest = JSON_MAPPER.readTree(text);
+                    metrics.parsed(uri, System.nanoTime() - arrived);
+                    key = gameKey(parsedRequest);
+                    if (uri.equals("/start")) {
+                        snakeResponse = start(parsedRequest);
+                    } else if (uri.equals("/end")) {
+                        snakeResponse = end(parsedRequest);
+                    } else {
+                        throw new IllegalAccessError("Strange call made to the snake: " + uri);
+                    }
                 }
                 //LOG.info("Responding with: {}", JSON_MAPPER.writeValueAsString(snakeResponse));
+                long handled = System.nanoTime() - arrived;
+                metrics.handled(uri, handled);
+                if (recorder != null && key != null)
+                    recorder.record(key, ReplayFile.route(uri), body, snakeResponse.get("move"), handled);
                 return snakeResponse;
             } catch (Exception e) {
                 LOG.warn("Something went wrong!", e);
-                LOG.info(criticalSnakes.get(0).get("body").toString());
-                LOG.info("@@@@@@@" + nearestFoodMap + "@@@@@@@");
-                LOG.info("@@@@@@@ {} , {} @@@@@@@ {} ", NEAREST_FOOD_DIS.x, NEAREST_FOOD_DIS.y, foodTargeted);
-                LOG.info("HEAD IS AT: {} , {}  ", HEAD_LOCATION.x, HEAD_LOCATION.y);
-                return null;
+                metrics.failed(uri);
+                if (key != null) {
+                    GameState state = games.peek(key);
+                    if (state != null)
+                        state.logDiagnostics();
+                }
+                if (!uri.equals("/move"))
+                    return null;
+                // an empty reply counts as a missed move, anything is better than that
+                return Responses.move(moveRequest == null ? MOVES[0] : safeMove(moveRequest));
             }
         }
 
@@ -117,9 +233,7 @@ public class Snake {
          * @return an dummy response. The Battlesnake engine will not read this data.
          */
         public Map<String, String> ping() {
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "pong");
-            return response;
+            return Responses.PONG;
         }
 
         /**
@@ -134,12 +248,8 @@ public class Snake {
          */
         public Map<String, String> start(JsonNode startRequest) {
             //LOG.info("START");
-
-            Map<String, String> response = new HashMap<>();
-            response.put("color", "#00FF00");
-            response.put("headType", "pixel");
-            response.put("tailType", "bolt");
-            return response;
+            games.start(gameKey(startRequest));
+            return Responses.APPEARANCE;
         }
 
         /**
@@ -152,76 +262,99 @@ public class Snake {
          *                    data to decide your next move.
          * @return a response back to the engine containing Battlesnake movement values.
          */
-        public Map<String, String> move(JsonNode moveRequest) {
+        public Map<String, String> move(JsonNode moveRequest) throws IOException {
+            return move(MOVE_DECODER.decode(JSON_MAPPER.treeAsTokens(moveRequest), new MoveRequest()));
+        }
+
+        /**
+         * Same as {@link #move(JsonNode)} for a request that has already been decoded.
+         */
+        public Map<String, String> move(MoveRequest moveRequest) {
+            return move(moveRequest, System.nanoTime());
+        }
+
+        /**
+         * Decides a move and answers in time for the engine whatever happens.
+         * 
+         * The answer is due by the game's timeout less the {@link NetworkSlack}
+         * measured for the game. The greedy move is decided first and the search
+         * improves on it until shortly before then; if the decision isn't back by
+         * the due time, or fails, the best move published so far is sent instead,
+         * and failing that any move that doesn't hit something.
+         *
+         * @param arrived {@link System#nanoTime()} when the request arrived.
+         */
+        public Map<String, String> move(MoveRequest moveRequest, long arrived) {
         	
+        	GameState state = games.get(gameKey(moveRequest));
+        	NetworkSlack slack = state.getSlack();
+        	slack.arrived(arrived);
+        	long budget = slack.budget(moveRequest.timeout);
+        	long answerBy = budget == Long.MAX_VALUE ? Long.MAX_VALUE : arrived + budget;
+        	long deadline = Math.min(arrived + SEARCH_BUDGET_NANOS, answerBy - HANDOFF_NANOS);
         	String move;
-        	JsonNode turn = moveRequest.get("turn");
-        	if(turn.intValue() == 0) {
-        		width = moveRequest.at("/board/width").intValue();
-            	height = moveRequest.at("/board/height").intValue();
-            	foodTargeted = false;
-            	criticalSnakes = new LinkedList<JsonNode>();
-            	currentMapStep = 0;
-            	nearestFoodMap = null;
-            	LOG.info("INIT");
-        	}//if
-        	LOG.info("@@@@@@@@@@@@@@@@@@@@ TURN #{} @@@@@@@@@@@@@@@@@@@@@ , {} ", turn.intValue(), foodTargeted);
-        	JsonNode foodArray = moveRequest.at("/board/food");
-        	
-        	getBodyAndHead(moveRequest.at("/you/body"));
-        	searchForCriticalSnakes(moveRequest);
+        	try {
+        		move = COMPUTE.call(() -> decide(state, moveRequest, deadline), answerBy);
+        		if (move == null) {
+        			// every compute thread is busy, answer without searching
+        			metrics.shed();
+        			move = quickMove(state, moveRequest, answerBy);
+        		}
+        	} catch (TimeoutException e) {
+        		metrics.late();
+        		// the decision may still be reading the request, so this thread decodes into a new one
+        		MOVE_REQUESTS.remove();
+        		move = bestSoFar(state, moveRequest);
+        	} catch (Exception e) {
+        		LOG.warn("Deciding a move failed, answering with the best so far", e);
+        		metrics.failed("/move");
+        		move = bestSoFar(state, moveRequest);
+        	}
+        	slack.replied(System.nanoTime());
+            return Responses.move(move);
+        }
+
+        /**
+         * Runs on the {@link ComputePool}.
+         */
+        private String decide(GameState state, MoveRequest moveRequest, long deadline) {
         	
-        	if(NEAREST_FOOD_DIS.x == 0 && NEAREST_FOOD_DIS.y == 0)
-        		foodTargeted = false;
+        	long started = System.nanoTime();
+        	String move;
+        	SearchResult search;
+        	// the engine never sends two moves for the same snake at once, this only
+        	// guards against a retried request racing the original
+        	ReentrantLock lock = state.getLock();
+        	lock.lock();
+        	try {
+        		move = state.nextMove(moveRequest, deadline);
+        		search = state.getLastSearch();
+        	} finally {
+        		lock.unlock();
+        	}
+        	long elapsed = System.nanoTime() - started;
+        	state.getDecisionTimes().record(elapsed);
+        	metrics.decided(elapsed, search, moveRequest.timeout);
+        	return move;
+        }
+
+        /**
+         * Answers a shed move without searching. If the game is still busy with
+         * another decision by the time the answer is due, the move is worked
+         * out from the request alone rather than waiting for it.
+         */
+        static String quickMove(GameState state, MoveRequest moveRequest, long answerBy)
+        		throws InterruptedException {
         	
-        	if(foodTargeted == false) {
-        		
-        		 nearestFoodLocation = findNearestFood(foodArray);
-        		 LOG.info("NEAREST FOOD LOCATED: {} , {} ", nearestFoodLocation.x, nearestFoodLocation.y);
-                 NEAREST_FOOD_DIS.x = HEAD_LOCATION.x - nearestFoodLocation.x;
-                 NEAREST_FOOD_DIS.y = HEAD_LOCATION.y - nearestFoodLocation.y;
-                 move = POSSIBLE_MOVES[getAppropriateMovement(nearestFoodLocation, moveRequest)];
-                 foodTargeted = true;
-                 
-        	}else {
-        		
-        		if(nearestFoodMap == null)
-        			mapDirection();
-        		
-        		int moveId = Character.getNumericValue(nearestFoodMap.charAt(currentMapStep));
-        		
-        		if(!(bodyPartExistsOnThisPoint(moveId)) && !(foodAlreadyTaken(getSnakeHeads()))
-        				&& !(surrounded(moveId, moveRequest))) {
-        			
-        			int checkedId = accountForCompetingSnake(moveId, moveRequest);
-        			if(checkedId != moveId) {
-        				moveId = checkedId;
-        				foodTargeted = false;
-        				nearestFoodMap = null;
-        				currentMapStep = 0;
-        				LOG.info("---EVADING COMPETING SNAKE---");
-        			}else {
-        				updateCurrentMapStep();
-        			}
-        			move = POSSIBLE_MOVES[moveId];
-	        		updateHeadLocation(moveId);
-            		
-        		}else {
-        			
-        			LOG.info("--emergency change of course---");
-        			move = POSSIBLE_MOVES[findPossibleMove(moveRequest)];
-        			foodTargeted = false;
-        			currentMapStep = 0;
-            		nearestFoodMap = null;
-            		
-        		}//if
-        		
-        		
-        	}//if
-           
-            Map<String, String> response = new HashMap<>();
-            response.put("move", move);
-            return response;
+        	ReentrantLock lock = state.getLock();
+        	long wait = Math.max(0, answerBy - HANDOFF_NANOS - System.nanoTime());
+        	if (!lock.tryLock(wait, TimeUnit.NANOSECONDS))
+        		return safeMove(moveRequest);
+        	try {
+        		return state.quickMove(moveRequest);
+        	} finally {
+        		lock.unlock();
+        	}
         }
 
 		/**
@@ -236,454 +369,48 @@ public class Snake {
          */
         public Map<String, String> end(JsonNode endRequest) {
 
-            LOG.info("END");
-            return EMPTY;
+            GameState state = games.end(gameKey(endRequest));
+            if (state != null)
+                state.logEnd();
+            return Responses.EMPTY;
         }
-    }
-    
-    private static void getBodyAndHead(JsonNode js) {
-    		
-    		BODY_LOCATIONS.clear();
-    		HEAD_LOCATION.x = js.get(0).get("x").intValue();
-    		HEAD_LOCATION.y = js.get(0).get("y").intValue();
-    			
-    		for(int i = 0; i < js.size(); i++) {
-    			
-    			JsonNode arrayObject = js.get(i);
-    			JsonNode x = arrayObject.get("x");
-    			JsonNode y = arrayObject.get("y");
-    			BODY_LOCATIONS.add(new Point(x.intValue(),y.intValue()));
 
-    			//LOG.info("EXEC #" + i + " Body Coord may be x:{} y: {}", x.intValue() ,y.intValue());
-    			
-    		}//for
-    		
-    		
-    	
-    }//getBodyAndHead
-    
-    private static Point findNearestFood(JsonNode js) {
-    	
-    	FOOD_DIS.clear();
-    	for(int i = 0; i < js.size(); i++) {
-    		
-    		FOOD_DIS.add(getDistance(HEAD_LOCATION, js.get(i).get("x").intValue(), js.get(i).get("y").intValue()));
-    		
-    	}//for
-    	
-    	int index = FOOD_DIS.indexOf(Collections.min(FOOD_DIS));
-    	
-    	return new Point(js.get(index).get("x").intValue(), js.get(index).get("y").intValue());
-    	
-    }//findNearestFood
-    
-    private static int getAppropriateMovement(Point nearest, JsonNode js) {
-    	
-    	//LOG.info("-----HEAD_LOCATION IS {}, {} --- NEAREST FOOD IS {},{} -----", HEAD_LOCATION.x, HEAD_LOCATION.y,
-    	//		nearest.x, nearest.y);
-    	int x = HEAD_LOCATION.x;
-    	int y = HEAD_LOCATION.y;
-    	
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	
-    	if(nearest.x < x && !(bodyPartExistsOnThisPoint(2)) && !surrounded(2, js)) {
-    		HEAD_LOCATION.x--;
-    		NEAREST_FOOD_DIS.x--;
-    		//LOG.info("-----GOING LEFT-----");
-    		return accountForCompetingSnake(2, js);
-    	}else if(nearest.x > x && !(bodyPartExistsOnThisPoint(3)) && !surrounded(3, js)) {
-    		HEAD_LOCATION.x++;
-    		NEAREST_FOOD_DIS.x++;
-    		//LOG.info("-----GOING RIGHT-----");
-    		return accountForCompetingSnake(3, js);
-    	}else if(nearest.y < y && !(bodyPartExistsOnThisPoint(0)) && !surrounded(0, js)) {
-    		HEAD_LOCATION.y--;
-    		NEAREST_FOOD_DIS.y--;
-    		//LOG.info("-----GOING UP-----");
-    		return accountForCompetingSnake(0, js);
-    	}else if(nearest.y > y && !(bodyPartExistsOnThisPoint(1)) && !surrounded(1, js)) {
-    		HEAD_LOCATION.y++;
-    		NEAREST_FOOD_DIS.y++;
-    		//LOG.info("-----GOING DOWN-----");
-    		return accountForCompetingSnake(1, js);
-    	}
-    	
-    	return findPossibleMove(js);
-    	
-    }//getAppropriateMovement
-    
-    private static boolean bodyPartExistsOnThisPoint(int direc) {
-    	
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	for(int i = 0; i < BODY_LOCATIONS.size(); i++) {
-    		
-    		Point currentPart = BODY_LOCATIONS.get(i);
-    		
-    		if(direc == 0) {
-    			if(currentPart.x == HEAD_LOCATION.x && currentPart.y == HEAD_LOCATION.y - 1)
-    				return true;
-    		}else if(direc == 1) {
-    			if(currentPart.x == HEAD_LOCATION.x && currentPart.y == HEAD_LOCATION.y + 1)
-    				return true;
-    		}else if(direc == 2) {
-    			if(currentPart.x == HEAD_LOCATION.x - 1 && currentPart.y == HEAD_LOCATION.y)
-    				return true;
-    		}else if(direc == 3) {
-    			if(currentPart.x == HEAD_LOCATION.x + 1 && currentPart.y == HEAD_LOCATION.y)
-    				return true;
-    		}
-    		
-    	}//for
-    	
-    	for(int j = 0; j < criticalSnakes.size(); j++) {
-    		
-    		if(criticalSnakes.get(j) != null) {
-    			for(int k = 0; k < criticalSnakes.get(j).get("body").size(); k++) {
-        			
-        			JsonNode body = criticalSnakes.get(j).get("body");
+        /**
+         * Games are told apart by the game id together with our snake's id, so
+         * the same game can be played by more than one of our snakes.
+         */
+        private static String gameKey(JsonNode request) {
+            return GameStateStore.key(request.at("/game/id").asText(), request.at("/you/id").asText());
+        }
 
-            		if(direc == 0) {
-            			if(body.get(k).get("x").intValue() == HEAD_LOCATION.x && body.get(k).get("y").intValue() == HEAD_LOCATION.y - 1)
-            				return true;
-            		}else if(direc == 1) {
-            			if(body.get(k).get("x").intValue()== HEAD_LOCATION.x && body.get(k).get("y").intValue() == HEAD_LOCATION.y + 1)
-            				return true;
-            		}else if(direc == 2) {
-            			if(body.get(k).get("x").intValue() == HEAD_LOCATION.x - 1 && body.get(k).get("y").intValue() == HEAD_LOCATION.y)
-            				return true;
-            		}else if(direc == 3) {
-            			if(body.get(k).get("x").intValue()== HEAD_LOCATION.x + 1 && body.get(k).get("y").intValue() == HEAD_LOCATION.y)
-            				return true;
-            		}//if
-        			
-        			
-        		}//for
-    		}//if
-    		
-    		
-    	}//for
-    	
-    	return false;
-    	
-    }//bodyPartExistsOnThisPoint
-    
-    private static int getDistance(Point start, int endX, int endY) {
-    	
-    	int xDistance = Math.abs(start.x - endX);
-    	int yDistance = Math.abs(start.y - endY);
-    	
-    	return xDistance + yDistance;
-    	
-    }//getDistance
-    
-    private static int findPossibleMove(JsonNode js) {
-    	
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	
-    	if(!(bodyPartExistsOnThisPoint(3)) && !(surrounded(3, js)) && !(HEAD_LOCATION.x + 1 >= width)) {
-    		
-    	
-    		HEAD_LOCATION.x++;
-    		NEAREST_FOOD_DIS.x++;
-    		return 3;
-    		
-    		
-    	}else if(!(bodyPartExistsOnThisPoint(2)) && !(surrounded(2, js)) && !(HEAD_LOCATION.x - 1 < 0)) {
-    		
-    		HEAD_LOCATION.x--;
-    		NEAREST_FOOD_DIS.x--;
-    		return 2;
-    	
-    	}else if(!(bodyPartExistsOnThisPoint(0)) && !(surrounded(0, js)) && !(HEAD_LOCATION.y - 1 < 0)) {
-    		
-    	
-    		HEAD_LOCATION.y--;
-    		NEAREST_FOOD_DIS.y--;
-    		return 0;
-    		
-    	}else if (!(bodyPartExistsOnThisPoint(1)) && !(surrounded(1, js)) && !(HEAD_LOCATION.y + 1 >= height)) {
-    		
-    		
-    		HEAD_LOCATION.y++;
-    		NEAREST_FOOD_DIS.y++;
-    		return 1;
-    		
-    	}//if
-    	
-    	LOG.info("----I DON'T KNOW WHAT I'M DOING----");
-    	
-    	return 0;
-    	
-    }//findPossibleMove
-    
-    private static void mapDirection() {
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	char xMove= ' ', yMove = ' ';
-    	nearestFoodMap = "";
-    	LOG.info("@@@@@@@ {} , {} @@@@@@@  ", NEAREST_FOOD_DIS.x, NEAREST_FOOD_DIS.y);
-    	if(NEAREST_FOOD_DIS.x < 0) 
-    		xMove = '3';
-    	else
-    		xMove = '2';
-    	
-    	if(NEAREST_FOOD_DIS.y < 0) 
-    		yMove = '1';
-    	else
-    		yMove = '0';
-    	
-    	
-    	for(int x = 0; x < Math.abs(NEAREST_FOOD_DIS.x); x++) 
-    		nearestFoodMap += xMove;
-    		
-    	
-    	
-    	for(int y = 0; y < Math.abs(NEAREST_FOOD_DIS.y); y++)
-    		nearestFoodMap += yMove;
-    		
-    	LOG.info(nearestFoodMap);
-    	
-    }//mapDirection
-    
-    private static void updateCurrentMapStep() {
-    	
-    	if(currentMapStep == nearestFoodMap.length() - 1) {
-    		
-    		currentMapStep = 0;
-    		nearestFoodMap = null;
-    		foodTargeted = false;
-    		
-    	}else {
-    		
-    		currentMapStep++;
-    		
-    	}//if
-    	
-    }//updateCurrentMapStep
-    
-    private static void updateHeadLocation(int move) {
-    	
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-		if(move == 0)
-			HEAD_LOCATION.y++;
-		else if(move == 1)
-			HEAD_LOCATION.y--;
-		else if(move == 2)	
-			HEAD_LOCATION.x--;
-		else if(move == 3)
-			HEAD_LOCATION.x++;
-		
-    	
-    	
-	}//updateHeadLocation
-    
-    private static Point[] getSnakeHeads() {
-    	
-    	Point [] heads = new Point[criticalSnakes.size()];
-    	for(int i = 0; i < criticalSnakes.size(); i++)
-    		heads[i] = new Point (criticalSnakes.get(i).get("body").get(0).get("x").intValue() , 
-    				criticalSnakes.get(i).get("body").get(0).get("y").intValue());
-    	
-    	return heads;
-    	
-    }//findSnakeHeads
-    
-    private static boolean foodAlreadyTaken(Point[] heads) {
-    	
-    	for(int i = 0; i < heads.length; i++) {
-    		
-    		if(getDistance(heads[i], nearestFoodLocation.x, nearestFoodLocation.y) == 0)
-    			return true;
-    			
-    		
-    	}//for
-    	
-    	return false;
-    	
-    }//foodAlreadyTaken
-    
-    private static void searchForCriticalSnakes(JsonNode js) {
-    	
-    	JsonNode snakes = js.at("/board/snakes");
-    	criticalSnakes.clear();
-    	
-    	for(int i = 0; i < snakes.size(); i++) {
-    		
-    		JsonNode body = snakes.get(i).get("body");
-    		if(getDistance(HEAD_LOCATION, body.get(0).get("x").intValue(), body.get(0).get("y").intValue()) <= 4
-    				|| getDistance(HEAD_LOCATION, body.get(body.size() - 1).get("x").intValue(),
-    						body.get(body.size() - 1).get("y").intValue()) <= 4) {
-    			
-    			criticalSnakes.add(snakes.get(i));
-    			
-    		}//if
-    		
-    	}//for
-    	
-    }//searchForCriticalSnakes
-    
-    private static int accountForCompetingSnake(int moveId, JsonNode info) {
-    	
-    	Point contestedPoint = getDestinationPoint(moveId);
-    	for(JsonNode snake : criticalSnakes) {
-    		
-    		if(getDistance(new Point(snake.get("body").get(0).get("x").intValue(), snake.get("body").get(0).get("y").intValue())
-    				, contestedPoint.x, contestedPoint.y) == 1 && !(snake.equals(info.get("you")))) {
-    			
-    			if(snake.get("body").size() >= info.at("/you/body").size()) {
-    				
-    				if(moveId == 0) 
-    					return findPossibleMove(false, true, true, true);
-    				else if(moveId == 1)
-    					return findPossibleMove(true, false, true, true);
-    				else if(moveId == 2)
-    					return findPossibleMove(true, true, false, true);
-    				else if(moveId == 3)
-    					return findPossibleMove(true, true, true, false);
-    				
-    			}//if
-    			
-    		}//if
-    		
-    	}//for
-    	
-    	return moveId;
-    	
-    }//lookForCompetingSnake
-    
-    private static Point getDestinationPoint(int moveId) {
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	if(moveId == 0) 
-    		return new Point(HEAD_LOCATION.x, HEAD_LOCATION.y - 1);
-    	else if(moveId == 1)
-    		return new Point(HEAD_LOCATION.x, HEAD_LOCATION.y + 1);
-    	else if(moveId == 2)
-    		return new Point(HEAD_LOCATION.x - 1, HEAD_LOCATION.y);
-    	else if(moveId == 3)
-    		return new Point(HEAD_LOCATION.x + 1, HEAD_LOCATION.y);
-    	
-    	throw new IllegalArgumentException();
-    	
-    }//getDestinationPoint
-    
-    
-    private static int findPossibleMove(boolean upAvailable, boolean downAvailable, boolean leftAvailable, boolean rightAvailable) {
-    	
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	
-    	if(!(bodyPartExistsOnThisPoint(3)) && rightAvailable) {
-    		
-    		if(!(HEAD_LOCATION.x + 1 >= width)) {
-    			HEAD_LOCATION.x++;
-    			NEAREST_FOOD_DIS.x++;
-    			return 3;
-    		}//if
-    		
-    	}else if(!(bodyPartExistsOnThisPoint(2)) && leftAvailable) {
-    		
-    		if(!(HEAD_LOCATION.x - 1 < 0)) {
-    			HEAD_LOCATION.x--;
-    			NEAREST_FOOD_DIS.x--;
-    			return 2;
-    		}
-    	}else if(!(bodyPartExistsOnThisPoint(0)) && upAvailable) {
-    		
-    		if(!(HEAD_LOCATION.y - 1 < 0)){
-    			HEAD_LOCATION.y--;
-    			NEAREST_FOOD_DIS.y--;
-    			return 0;
-    		}
-    	}else if (!(bodyPartExistsOnThisPoint(1)) && downAvailable) {
-    		
-    		if(!(HEAD_LOCATION.y + 1 >= height)) {
-    			HEAD_LOCATION.y++;
-    			NEAREST_FOOD_DIS.y++;
-    			return 1;
-    		}
-    	}//if
-    	
-    	return 0;
-    	
-    }//findPossibleMove
-    
-    private static boolean surrounded(int direction, JsonNode info) {
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	Point squareOfInterest = getDestinationPoint(direction);
-    	
-    	if(!(bodyPartExistsOnThisPoint(0, squareOfInterest, info))) {
-    		
-    		return false;
-    		
-    	}else if(!(bodyPartExistsOnThisPoint(1, squareOfInterest,info))) {
-    		
-    		return false;
-    		
-    	}else if(!(bodyPartExistsOnThisPoint(2, squareOfInterest,info))) {
-    		
-    		return false;
-    		
-    	}else if(!(bodyPartExistsOnThisPoint(3, squareOfInterest,info))) {
-    		
-    		return false;
-    		
-    	}
-    	
-    	return true;
-    	
-    }//surrounded
-    
- private static boolean bodyPartExistsOnThisPoint(int direc, Point squareOfInterest, JsonNode info) {
-    	
-//      String[] possibleMoves = { "up", "down", "left", "right" };
-    	for(int i = 0; i < BODY_LOCATIONS.size(); i++) {
-    		
-    		Point currentPart = BODY_LOCATIONS.get(i);
-    		
-    		if(direc == 0) {
-    			if(currentPart.x == squareOfInterest.x && currentPart.y == squareOfInterest.y - 1)
-    				return true;
-    		}else if(direc == 1) {
-    			if(currentPart.x == squareOfInterest.x && currentPart.y == squareOfInterest.y + 1)
-    				return true;
-    		}else if(direc == 2) {
-    			if(currentPart.x == squareOfInterest.x - 1 && currentPart.y == squareOfInterest.y)
-    				return true;
-    		}else if(direc == 3) {
-    			if(currentPart.x == squareOfInterest.x + 1 && currentPart.y == squareOfInterest.y)
-    				return true;
-    		}
-    		
-    	}//for
-    	
-    	for(int j = 0; j < criticalSnakes.size(); j++) {
-    		
-    		if(criticalSnakes.get(j) != null && !(criticalSnakes.get(j).equals(info.get("you")))) {
-    			for(int k = 0; k < criticalSnakes.get(j).get("body").size(); k++) {
-        			
-        			JsonNode body = criticalSnakes.get(j).get("body");
+        private static String gameKey(MoveRequest request) {
+            return GameStateStore.key(request.getGameId(), request.getYouId());
+        }
+
+        private static String bestSoFar(GameState state, MoveRequest moveRequest) {
+        	String move = state.getBestMove(moveRequest.turn);
+        	return move != null ? move : safeMove(moveRequest);
+        }
 
-            		if(direc == 0) {
-            			if(body.get(k).get("x").intValue() == squareOfInterest.x && body.get(k).get("y").intValue() == squareOfInterest.y - 1)
-            				return true;
-            		}else if(direc == 1) {
-            			if(body.get(k).get("x").intValue()== squareOfInterest.x && body.get(k).get("y").intValue() == squareOfInterest.y + 1)
-            				return true;
-            		}else if(direc == 2) {
-            			if(body.get(k).get("x").intValue() == squareOfInterest.x - 1 && body.get(k).get("y").intValue() == squareOfInterest.y)
-            				return true;
-            		}else if(direc == 3) {
-            			if(body.get(k).get("x").intValue()== squareOfInterest.x + 1 && body.get(k).get("y").intValue() == squareOfInterest.y)
-            				return true;
-            		}//if
-        			
-        			
-        		}//for
-    		}//if
-    		
-    		
-    	}//for
-    	
-    	return false;
-    	
-    }//bodyPartExistsOnThisPoint
+        /**
+         * A move that at least doesn't hit anything next turn, worked out from the
+         * request alone for when the game's own state is busy or broken. Tries
+         * the moves in the same order as the greedy logic's last resort.
+         */
+        static String safeMove(MoveRequest request) {
+        	try {
+        		if (request.youIndex >= 0) {
+        			SearchBoard board = FALLBACK_BOARDS.get();
+        			board.load(request);
+        			for (int move : FALLBACK_ORDER)
+        				if (board.isSafe(request.youIndex, move))
+        					return MOVES[move];
+        		}
+        	} catch (RuntimeException e) {
+        		LOG.warn("Could not read the request for a safe move", e);
+        	}
+        	return MOVES[0];
+        }
+    }
 
 }//ENDOFCLASS
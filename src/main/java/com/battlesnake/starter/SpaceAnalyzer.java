@@ -0,0 +1,185 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Flood fills over a {@link SearchBoard}: how much room a snake has, and how the
+ * board splits into territories when every snake races for the squares closest to it.
+ *
+ * Bodies are not treated as permanent walls. A segment {@code k} squares from
+ * the head of a snake of length {@code L} is gone after {@code L - k} turns, so
+ * a square counts as reachable if the fill gets there no earlier than that.
+ * Growth is ignored, which makes this a little optimistic after eating.
+ *
+ * All buffers are allocated once and grown with the board. Visited squares are
+ * marked with a stamp that changes on every call, so nothing has to be cleared
+ * between fills. An instance is not thread safe; every search worker has its own.
+ */
+public class SpaceAnalyzer {
+
+    private int[] queue = new int[0];
+    private int[] stamp = new int[0];
+    private int[] arrival = new int[0];
+    private int[] owner = new int[0];
+    private int[] freeAt = new int[0];
+    private int[] territory = new int[0];
+    private int currentStamp;
+
+    /**
+     * Counts the squares a snake can reach from where its head is now.
+     *
+     * @param limit stop counting once this many are found, e.g. the snake's length.
+     */
+    public int reachable(SearchBoard board, int snake, int limit) {
+        prepare(board);
+        return fill(board, board.headCell(snake), 0, limit);
+    }
+
+    /**
+     * Counts the squares a snake can reach after making a move, 0 if the move
+     * itself is fatal.
+     *
+     * @param limit stop counting once this many are found, e.g. the snake's length.
+     */
+    public int reachableAfterMove(SearchBoard board, int snake, int move, int limit) {
+        int start = board.destination(snake, move);
+        if (start < 0)
+            return 0;
+        prepare(board);
+        if (freeAt[start] > 1)
+            return 0;
+        return fill(board, start, 1, limit);
+    }
+
+    /**
+     * Splits the board between the living snakes. A square belongs to the snake
+     * that can get there first; a tie goes to the longer snake, or to nobody if
+     * they are the same length.
+     *
+     * @return the number of squares the given snake owns. The others can be read
+     *         with {@link #getTerritory(int)} afterwards.
+     */
+    public int voronoi(SearchBoard board, int you) {
+        prepare(board);
+        int mark = nextStamp();
+        if (territory.length < board.snakeCount)
+            territory = new int[board.snakeCount];
+        Arrays.fill(territory, 0, board.snakeCount, 0);
+
+        int head = 0;
+        int tail = 0;
+        for (int s = 0; s < board.snakeCount; s++) {
+            if (!board.alive[s])
+                continue;
+            int cell = board.headCell(s);
+            stamp[cell] = mark;
+            arrival[cell] = 0;
+            owner[cell] = s;
+            queue[tail++] = cell;
+        }//for
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int from = owner[cell];
+            if (from < 0)
+                continue;
+            int time = arrival[cell] + 1;
+            for (int move = 0; move < 4; move++) {
+                int next = board.neighbour(cell, move);
+                if (next < 0)
+                    continue;
+                if (freeAt[next] > time)
+                    continue;
+                if (stamp[next] != mark) {
+                    stamp[next] = mark;
+                    arrival[next] = time;
+                    owner[next] = from;
+                    queue[tail++] = next;
+                } else if (arrival[next] == time && owner[next] != from && owner[next] >= 0) {
+                    int other = owner[next];
+                    if (board.length[from] > board.length[other])
+                        owner[next] = from;
+                    else if (board.length[from] == board.length[other])
+                        owner[next] = -1;
+                }//if
+            }//for
+        }//while
+
+        // heads are where the fill started, not territory
+        for (int i = 0; i < tail; i++) {
+            int cell = queue[i];
+            if (owner[cell] >= 0 && arrival[cell] > 0)
+                territory[owner[cell]]++;
+        }//for
+        return territory[you];
+    }//voronoi
+
+    /**
+     * @return the squares a snake owned in the last {@link #voronoi(SearchBoard, int)}.
+     */
+    public int getTerritory(int snake) {
+        return territory[snake];
+    }
+
+    private int fill(SearchBoard board, int start, int startTime, int limit) {
+        int mark = nextStamp();
+        int head = 0;
+        int tail = 0;
+        stamp[start] = mark;
+        arrival[start] = startTime;
+        queue[tail++] = start;
+        int count = startTime > 0 ? 1 : 0;
+
+        while (head < tail && count < limit) {
+            int cell = queue[head++];
+            int time = arrival[cell] + 1;
+            for (int move = 0; move < 4; move++) {
+                int next = board.neighbour(cell, move);
+                if (next < 0)
+                    continue;
+                if (stamp[next] == mark || freeAt[next] > time)
+                    continue;
+                stamp[next] = mark;
+                arrival[next] = time;
+                queue[tail++] = next;
+                count++;
+            }//for
+        }//while
+        return Math.min(count, limit);
+    }//fill
+
+    /**
+     * Sizes the buffers for the board and works out when each square comes free.
+     */
+    private void prepare(SearchBoard board) {
+        int cells = board.cells;
+        if (queue.length < cells) {
+            queue = new int[cells];
+            stamp = new int[cells];
+            arrival = new int[cells];
+            owner = new int[cells];
+            freeAt = new int[cells];
+            currentStamp = 0;
+        }
+        Arrays.fill(freeAt, 0, cells, 0);
+        for (int s = 0; s < board.snakeCount; s++) {
+            if (!board.alive[s])
+                continue;
+            int length = board.length[s];
+            for (int k = 0; k < length; k++) {
+                int cell = board.segment(s, k);
+                if (freeAt[cell] < length - k)
+                    freeAt[cell] = length - k;
+            }//for
+        }//for
+    }//prepare
+
+    private int nextStamp() {
+        if (++currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+        return currentStamp;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.battlesnake.starter;
+
+/**
+ * Fixed-size table of search results keyed by {@link SearchBoard#getHash()}.
+ *
+ * Entries live in two primitive arrays, one long for the key and one for the
+ * packed data, and nothing is allocated after construction. Buckets have two
+ * slots: the first keeps the deepest result, unless it is from an older search,
+ * and the second always takes the newest one.
+ *
+ * Threads share a table without locks. Each write stores {@code key ^ data}
+ * next to the data, so a slot half written by another thread doesn't match on
+ * the next probe and simply counts as a miss.
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    /**
+     * Bytes all the tables of running games may take together, from the
+     * TT_MEMORY_MB system property, a quarter of the heap by default.
+     */
+    public static final long MEMORY_BUDGET = Long.getLong("TT_MEMORY_MB",
+            Runtime.getRuntime().maxMemory() / 4 >> 20) << 20;
+
+    /**
+     * The share of {@link #MEMORY_BUDGET} each game's search may take, with
+     * {@link GameStateStore#DEFAULT_CAPACITY} games running.
+     */
+    static final long GAME_BUDGET = MEMORY_BUDGET / GameStateStore.DEFAULT_CAPACITY;
+
+    /**
+     * Slots per table, from the TT_ENTRIES system property. Every game has its
+     * own table, 16 bytes a slot, and up to {@link GameStateStore#DEFAULT_CAPACITY}
+     * games are kept, so by default each table gets an even share of
+     * {@link #MEMORY_BUDGET}, see {@link #entriesFor(long, int)}.
+     */
+    public static final int DEFAULT_ENTRIES = Integer.getInteger("TT_ENTRIES",
+            entriesFor(MEMORY_BUDGET, GameStateStore.DEFAULT_CAPACITY));
+
+    static final int MIN_ENTRIES = 1 << 10;
+    static final int MAX_ENTRIES = 1 << 17;
+
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private volatile int generation;
+
+    public TranspositionTable() {
+        this(DEFAULT_ENTRIES);
+    }
+
+    /**
+     * @param entries how many results to keep, rounded up to a power of two.
+     */
+    public TranspositionTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(entries, 2) - 1) << 1;
+        keys = new long[size];
+        data = new long[size];
+        bucketMask = size / 2 - 1;
+    }
+
+    /**
+     * @return the slots a table can have for that many tables to fit in the
+     *         budget, a power of two from 1024 (16 KB) to 131072 (2 MB). Only
+     *         a budget under 16 KB a table is overrun.
+     */
+    static int entriesFor(long budget, int tables) {
+        long share = budget / Math.max(1, tables) / 16;
+        int entries = (int) Math.min(MAX_ENTRIES, Long.highestOneBit(Math.max(1, share)));
+        return Math.max(MIN_ENTRIES, entries);
+    }
+
+    /**
+     * Starts a new search. Results from earlier ones stay usable but give way to new ones.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * @return the packed entry for a position, or 0 if there is none.
+     */
+    public long probe(long hash) {
+        int slot = (int) hash & bucketMask;
+        slot <<= 1;
+        for (int i = slot; i < slot + 2; i++) {
+            long entry = data[i];
+            if ((keys[i] ^ entry) == hash && entry != 0)
+                return entry;
+        }//for
+        return 0;
+    }//probe
+
+    /**
+     * Remembers a search result.
+     *
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     * @param move  the best move found, or -1.
+     */
+    public void store(long hash, int depth, int score, int bound, int move) {
+        int slot = ((int) hash & bucketMask) << 1;
+        long entry = VALID | ((long) generation << 45) | ((long) (move + 1) << 42) | ((long) bound << 40)
+                | ((long) Math.min(depth, 255) << 32) | (score & 0xFFFFFFFFL);
+
+        long kept = data[slot];
+        boolean replace = kept == 0 || (keys[slot] ^ kept) == hash || depth >= depth(kept)
+                || generation(kept) != generation;
+        int into = replace ? slot : slot + 1;
+        data[into] = entry;
+        keys[into] = hash ^ entry;
+    }//store
+
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * @return the stored best move, or -1 if none was stored.
+     */
+    public static int move(long entry) {
+        return ((int) (entry >>> 42) & 0x7) - 1;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 45) & 0xFF;
+    }
+
+}
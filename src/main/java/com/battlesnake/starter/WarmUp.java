@@ -0,0 +1,127 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Plays games against itself before the snake takes real ones, so the first
+ * games after a deploy or restart aren't played by a JVM that is still
+ * interpreting the move path and times out.
+ *
+ * The games are played by {@link Simulator} from fixed seeds, on the board
+ * sizes and snake counts real games use, and every request goes the whole way
+ * a real one does: its body is decoded, {@link Snake.Handler} decides on the
+ * compute pool and the response is encoded. Moves are given a short timeout,
+ * which makes for many requests and short searches, until the time allowed
+ * is up.
+ *
+ * Warm-up games are kept out of what the server reports and learns. They
+ * are played by a handler with its own games and metrics that records no
+ * replays, and they log only errors. They are practice games, which leave the
+ * {@link PositionCache} and {@link OpponentModel} alone, so nothing searched
+ * in a hurry against ourselves stands in for a real search or a real opponent.
+ */
+public class WarmUp {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmUp.class);
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    /**
+     * The timeout warm-up moves are sent with.
+     */
+    private static final int TURN_MS = 40;
+
+    /**
+     * Turns a warm-up game is cut short at, which bounds how far past the time
+     * allowed the last game can run.
+     */
+    private static final int MAX_TURNS = 30;
+
+    /**
+     * Board sizes and snake counts, played in turn.
+     */
+    private static final int[][] GAMES = { { 11, 2 }, { 11, 4 }, { 7, 2 }, { 19, 6 } };
+
+    /**
+     * Plays games until the time is up, finishing the one under way.
+     *
+     * @return the moves played.
+     */
+    public static int run(long millis) {
+        long started = System.nanoTime();
+        GameStateStore store = new GameStateStore(GameStateStore.DEFAULT_CAPACITY,
+                GameStateStore.DEFAULT_IDLE_MILLIS, false);
+        Snake.Handler handler = new Snake.Handler(store, new Metrics(), null);
+        long until = started + millis * 1_000_000L;
+        int games = 0;
+        int moves = 0;
+        while (System.nanoTime() < until) {
+            int[] game = GAMES[games % GAMES.length];
+            Simulator simulator = new Simulator(game[0], game[0], TURN_MS);
+            List<Simulator.Player> players = new ArrayList<>();
+            List<PipelinePlayer> counted = new ArrayList<>();
+            for (int s = 0; s < game[1]; s++) {
+                PipelinePlayer player = new PipelinePlayer(store, handler);
+                players.add(player);
+                counted.add(player);
+            }
+            try {
+                simulator.play("warmup-" + games, players, games + 1, MAX_TURNS);
+            } catch (IOException e) {
+                LOG.warn("Warm-up game failed", e);
+            }
+            for (PipelinePlayer player : counted)
+                moves += player.moves;
+            games++;
+        }//while
+        LOG.info("Warmed up with {} games, {} moves in {} ms", games, moves,
+                (System.nanoTime() - started) / 1_000_000L);
+        return moves;
+    }//run
+
+    /**
+     * A snake that answers through the same steps as the HTTP routes.
+     */
+    private static class PipelinePlayer implements Simulator.Player {
+        private final GameStateStore store;
+        private final Snake.Handler handler;
+        private final MoveRequestDecoder decoder = new MoveRequestDecoder();
+        private final MoveRequest request = new MoveRequest();
+        int moves;
+
+        PipelinePlayer(GameStateStore store, Snake.Handler handler) {
+            this.store = store;
+            this.handler = handler;
+        }
+
+        @Override
+        public void start(byte[] body) throws IOException {
+            JsonNode start = JSON_MAPPER.readTree(body);
+            Responses.encode(handler.start(start));
+            String key = GameStateStore.key(start.at("/game/id").asText(), start.at("/you/id").asText());
+            store.peek(key).setVerbosity(EventLog.ERROR);
+        }
+
+        @Override
+        public String move(byte[] body) throws IOException {
+            Map<String, String> response = handler.move(decoder.decode(body, request), System.nanoTime());
+            Responses.encode(response);
+            moves++;
+            return response.get("move");
+        }
+
+        @Override
+        public void end(byte[] body) throws IOException {
+            Responses.encode(handler.end(JSON_MAPPER.readTree(body)));
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.battlesnake.starter;
+
+/**
+ * Zobrist keys for {@link SearchBoard} hashing.
+ * 
+ * Instead of tables sized for some maximum board and snake count, every key is
+ * a SplitMix64 mix of what it describes. That costs a few multiplications per
+ * key but works for any board and is the same in every JVM, which the opening
+ * book and caches rely on.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x5EED_B477_1E5A_4E11L;
+
+    private static final long HEAD = 1;
+    private static final long BODY = 2;
+    private static final long LENGTH = 3;
+    private static final long HEALTH = 4;
+    private static final long FOOD = 5;
+    private static final long HAZARD = 6;
+
+    private Zobrist() {
+    }
+
+    /**
+     * @return the key for a snake's head being on a square.
+     */
+    public static long head(int snake, int cell) {
+        return mix(HEAD, snake, cell);
+    }
+
+    /**
+     * @return the key for one of a snake's segments being on a square.
+     */
+    public static long body(int snake, int cell) {
+        return mix(BODY, snake, cell);
+    }
+
+    public static long length(int snake, int length) {
+        return mix(LENGTH, snake, length);
+    }
+
+    public static long health(int snake, int health) {
+        return mix(HEALTH, snake, health);
+    }
+
+    public static long food(int cell) {
+        return mix(FOOD, 0, cell);
+    }
+
+    /**
+     * @return the key for {@code stacked} hazards lying on a square.
+     */
+    public static long hazard(int cell, int stacked) {
+        return mix(HAZARD, stacked, cell);
+    }
+
+    private static long mix(long kind, int snake, int value) {
+        long z = SEED + (kind << 56) + ((long) snake << 40) + value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
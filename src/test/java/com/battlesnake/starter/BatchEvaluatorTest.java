@@ -0,0 +1,77 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchEvaluatorTest {
+
+    /**
+     * Worked out by hand from the features: 20 a length ahead (at most 5), -60
+     * an opponent, 15 a safe move, 4 a square of territory ahead, -2 a point
+     * of hazard damage, less food distance times missing health over 25.
+     */
+    @Test
+    void handWorkedScoresTest() throws IOException {
+        List<SearchBoard> boards = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        // alone: 3 ahead, 3 safe moves, all 48 other squares, food 2 away
+        boards.add(SearchBoardTest.board("3,1", "90:3,3 3,4 3,5"));
+        expected.add(60 + 45 + 192);
+        boards.add(SearchBoardTest.board("3,1", "10:3,3 3,4 3,5"));
+        expected.add(60 + 45 + 192 - 2 * 90 / 25);
+        // two turns of health left and the food two moves away
+        boards.add(SearchBoardTest.board("3,1", "2:3,3 3,4 3,5"));
+        expected.add(60 + 45 + 192 + BatchEvaluator.STARVING - 2 * 98 / 25);
+        boards.add(SearchBoardTest.ruledBoard("royale", "3,3", "3,1", "90:3,3 3,4 3,5"));
+        expected.add(60 + 45 + 192 - 2 * Ruleset.HAZARD_DAMAGE);
+        // 5 ahead at most, boxed in by its own body with no room and no moves, food 4 away
+        boards.add(SearchBoardTest.board("3,1", "90:0,0 1,0 1,1 0,1 0,2 1,2 2,2 2,1 2,0"));
+        expected.add(100 + BatchEvaluator.TRAPPED - 4 * 10 / 25);
+        // a duel split down the middle column, which ties go to nobody in; food 5 away
+        boards.add(SearchBoardTest.board("3,0", "90:1,3 0,3 0,2", "90:5,3 6,3 6,4"));
+        expected.add(-60 + 45 - 5 * 10 / 25);
+        // a longer opponent wins the middle column: 20 squares against 27
+        boards.add(SearchBoardTest.board("3,0", "90:1,3 0,3 0,2", "90:5,3 6,3 6,4 5,4"));
+        expected.add(-20 - 60 + 45 - 28 - 5 * 10 / 25);
+
+        BatchEvaluator batch = new BatchEvaluator();
+        // several times over, so the block has to grow
+        for (int round = 0; round < 4; round++)
+            for (SearchBoard board : boards)
+                batch.add(board, 0);
+        assertEquals(4 * boards.size(), batch.size());
+        int[] scores = batch.evaluate();
+        for (int i = 0; i < batch.size(); i++)
+            assertEquals((int) expected.get(i % boards.size()), scores[i], "position " + i % boards.size());
+        for (int i = 0; i < boards.size(); i++)
+            assertEquals((int) expected.get(i), new Evaluator().evaluate(boards.get(i), 0));
+    }
+
+    @Test
+    void starvingAndTrappedTest() throws IOException {
+        BatchEvaluator batch = new BatchEvaluator();
+        int fed = batch.add(SearchBoardTest.board("3,1", "90:3,3 3,4 3,5"), 0);
+        int starving = batch.add(SearchBoardTest.board("3,1", "1:3,3 3,4 3,5"), 0);
+        // boxed into the corner by its own body
+        int trapped = batch.add(SearchBoardTest.board("3,1", "90:0,0 1,0 1,1 0,1 0,2 1,2 2,2 2,1 2,0"), 0);
+        int[] scores = batch.evaluate();
+        assertTrue(scores[starving] <= scores[fed] + BatchEvaluator.STARVING);
+        assertTrue(scores[trapped] <= scores[fed] + BatchEvaluator.TRAPPED / 2);
+    }
+
+    @Test
+    void foodReciprocalTest() {
+        for (int x = 0; x < BatchEvaluator.FOOD_EXACT_BELOW; x++)
+            assertEquals(x / 25, x * BatchEvaluator.FOOD_RECIPROCAL >> BatchEvaluator.FOOD_SHIFT);
+        int x = BatchEvaluator.FOOD_EXACT_BELOW;
+        assertNotEquals(x / 25, x * BatchEvaluator.FOOD_RECIPROCAL >> BatchEvaluator.FOOD_SHIFT);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ComputePoolTest {
+
+    @Test
+    void callTest() throws Exception {
+        ComputePool pool = new ComputePool(2, 2);
+        assertEquals("left", pool.call(() -> "left"));
+        assertThrows(IOException.class, () -> pool.call(() -> {
+            throw new IOException("boom");
+        }));
+    }
+
+    @Test
+    void saturatedPoolFailsFastTest() throws Exception {
+        ComputePool pool = new ComputePool(1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = new Thread(() -> {
+            try {
+                pool.call(() -> {
+                    running.countDown();
+                    return release.await(10, TimeUnit.SECONDS);
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread queued = new Thread(() -> {
+            try {
+                pool.call(() -> "queued");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        busy.start();
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        queued.start();
+        while (pool.getQueued() == 0)
+            Thread.sleep(1);
+
+        long start = System.nanoTime();
+        assertNull(pool.call(() -> "rejected"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        release.countDown();
+        busy.join();
+        queued.join();
+        assertEquals("again", pool.call(() -> "again"));
+    }
+
+    @Test
+    void deadlineTest() throws Exception {
+        ComputePool pool = new ComputePool(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class,
+                () -> pool.call(() -> release.await(10, TimeUnit.SECONDS), start + 20_000_000L));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+        assertEquals("done", pool.call(() -> "done", System.nanoTime() + TimeUnit.SECONDS.toNanos(10)));
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EventLogTest {
+
+    @Test
+    void formatTest() {
+        List<String> lines = new ArrayList<>();
+        EventLog log = new EventLog(16, (line, level) -> lines.add(level + " " + line));
+        log.log(EventLog.INFO, EventLog.INFO, "g:s", "TURN #{} FOOD {} , {}", 12, 3, 4);
+        log.log(EventLog.WARN, EventLog.INFO, "g:s", "NO ARGS");
+        log.log(EventLog.INFO, EventLog.INFO, "g:s", "MORE {} THAN {} {} {} GIVEN", 1, 2, 3);
+        assertEquals(3, log.drain());
+        assertEquals("2 [g:s] TURN #12 FOOD 3 , 4", lines.get(0));
+        assertEquals("1 [g:s] NO ARGS", lines.get(1));
+        assertEquals("2 [g:s] MORE 1 THAN 2 3 {} GIVEN", lines.get(2));
+    }
+
+    @Test
+    void verbosityTest() {
+        List<String> lines = new ArrayList<>();
+        EventLog log = new EventLog(16, (line, level) -> lines.add(line));
+        log.log(EventLog.DEBUG, EventLog.INFO, "g:s", "hidden");
+        log.log(EventLog.INFO, EventLog.WARN, "g:s", "hidden");
+        log.log(EventLog.ERROR, EventLog.WARN, "g:s", "shown");
+        assertEquals(1, log.drain());
+        assertEquals("[g:s] shown", lines.get(0));
+    }
+
+    @Test
+    void fullBufferDropsTest() {
+        List<String> lines = new ArrayList<>();
+        EventLog log = new EventLog(4, (line, level) -> lines.add(line));
+        for (int i = 0; i < 6; i++)
+            log.log(EventLog.INFO, EventLog.INFO, "g", "{}", i);
+        assertEquals(2, log.getDropped());
+        assertEquals(4, log.drain());
+        assertEquals("[g] 3", lines.get(3));
+        // room again once drained, and the ring wraps around
+        log.log(EventLog.INFO, EventLog.INFO, "g", "{}", 9);
+        assertEquals(1, log.drain());
+        assertEquals("[g] 9", lines.get(4));
+    }
+
+    @Test
+    void concurrentWritersTest() throws InterruptedException {
+        int[] count = { 0 };
+        EventLog log = new EventLog(1 << 16, (line, level) -> count[0]++);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    log.log(EventLog.INFO, EventLog.INFO, "g", "{}", i);
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers)
+            writer.join();
+        log.drain();
+        assertEquals(40_000, count[0]);
+        assertEquals(0, log.getDropped());
+    }
+
+    @Test
+    void levelNamesTest() {
+        assertEquals(EventLog.DEBUG, EventLog.level("debug"));
+        assertEquals(EventLog.WARN, EventLog.level("WARN"));
+        assertEquals(-1, EventLog.level("loud"));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class GameStateStoreTest {
+
+    @Test
+    void gamesAreIsolatedTest() {
+        GameStateStore store = new GameStateStore();
+        GameState first = store.start(GameStateStore.key("game-1", "you"));
+        GameState second = store.start(GameStateStore.key("game-2", "you"));
+        assertNotSame(first, second);
+        assertSame(first, store.get(GameStateStore.key("game-1", "you")));
+        assertSame(second, store.get(GameStateStore.key("game-2", "you")));
+    }
+
+    @Test
+    void endDropsStateTest() {
+        GameStateStore store = new GameStateStore();
+        String key = GameStateStore.key("game", "you");
+        store.start(key);
+        store.end(key);
+        assertNull(store.peek(key));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedTest() {
+        GameStateStore store = new GameStateStore(2, GameStateStore.DEFAULT_IDLE_MILLIS);
+        store.start("a");
+        store.start("b");
+        store.get("a");
+        store.start("c");
+        assertEquals(2, store.size());
+        assertNull(store.peek("b"));
+    }
+
+    @Test
+    void idleGamesAreEvictedTest() throws InterruptedException {
+        GameStateStore store = new GameStateStore(16, 1);
+        store.start("a");
+        Thread.sleep(5);
+        store.start("b");
+        assertNull(store.peek("a"));
+        assertEquals(1, store.size());
+    }
+}
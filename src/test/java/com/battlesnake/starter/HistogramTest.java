@@ -0,0 +1,57 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    void emptyTest() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+    }
+
+    @Test
+    void smallValuesAreExactTest() {
+        Histogram histogram = new Histogram();
+        for (int v = 1; v <= 10; v++)
+            histogram.record(v);
+        assertEquals(10, histogram.getCount());
+        assertEquals(55, histogram.getSum());
+        assertEquals(5, histogram.getValueAtQuantile(0.5));
+        assertEquals(10, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void largeValuesWithinPrecisionTest() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 100_000; v++)
+            histogram.record(v * 1000);
+        long p99 = histogram.getValueAtQuantile(0.99);
+        assertTrue(Math.abs(p99 - 99_000_000L) < 99_000_000L * 0.04, "p99 " + p99);
+        assertEquals(100_000_000L, histogram.getMax());
+        assertEquals(100_000_000L, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void bucketsCoverEveryValueTest() {
+        for (long v = 0; v < 1 << 20; v += 7) {
+            int index = Histogram.index(v);
+            assertTrue(Histogram.highestInBucket(index) >= v);
+            assertTrue(index == 0 || Histogram.highestInBucket(index - 1) < v);
+        }
+    }
+
+    @Test
+    void outOfRangeIsClampedTest() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(Histogram.MAX_VALUE, histogram.getMax());
+    }
+
+}
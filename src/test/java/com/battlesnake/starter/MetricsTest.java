@@ -0,0 +1,42 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+
+    @Test
+    void scrapeTest() {
+        Metrics metrics = new Metrics();
+        GameStateStore games = new GameStateStore();
+        games.start("game:you").getDecisionTimes().record(120_000_000L);
+
+        metrics.parsed("/move", 50_000L);
+        metrics.handled("/move", 150_000_000L);
+        metrics.serialized("/move", 10_000L);
+        metrics.decided(120_000_000L, new SearchResult(0, 0, 7, 120_000), 100);
+        metrics.failed("/start");
+
+        String text = metrics.scrape(games);
+        assertTrue(text.contains("# TYPE snake_handle_seconds summary\n"));
+        assertTrue(text.contains("snake_requests_total{route=\"/move\"} 1.0\n"));
+        assertTrue(text.contains("snake_errors_total{route=\"/start\"} 1.0\n"));
+        assertTrue(text.contains("snake_search_depth{quantile=\"0.5\"} 7.0\n"));
+        String speed = "snake_search_nodes_per_second{quantile=\"0.99\"} ";
+        int at = text.indexOf(speed) + speed.length();
+        double nodesPerSecond = Double.parseDouble(text.substring(at, text.indexOf('\n', at)));
+        assertTrue(Math.abs(nodesPerSecond - 1_000_000) < 40_000, "nodes/s " + nodesPerSecond);
+        assertTrue(text.contains("snake_moves_over_timeout_total 1.0\n"));
+        assertTrue(text.contains("snake_game_decision_seconds_count{game=\"game:you\"} 1\n"));
+        assertTrue(text.contains("snake_game_timeout_seconds{game=\"game:you\"} 0.0\n"));
+    }
+
+    @Test
+    void unknownRouteTest() {
+        Metrics metrics = new Metrics();
+        metrics.handled("/nope", 1);
+        assertTrue(!metrics.scrape(new GameStateStore()).contains("/nope"));
+    }
+
+}
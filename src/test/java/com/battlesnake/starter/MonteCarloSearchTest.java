@@ -0,0 +1,57 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MonteCarloSearchTest {
+
+    @Test
+    void avoidsWallTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:0,0 1,0 2,0");
+        SearchResult result = new MonteCarloSearch().search(board, 0, System.nanoTime() + 50_000_000L);
+        assertEquals(1, result.getMove());
+        assertTrue(result.getNodes() > 0);
+    }
+
+    @Test
+    void avoidsBodiesAmongManySnakesTest() throws IOException {
+        // up runs into the snake above, left into our own neck
+        SearchBoard board = SearchBoardTest.board("1,1 5,5", "90:3,3 2,3 2,4", "80:4,2 3,2 2,2 1,2",
+                "80:0,6 1,6 2,6", "80:4,0 5,0 6,0");
+        SearchResult result = new MonteCarloSearch().search(board, 0, System.nanoTime() + 50_000_000L);
+        assertTrue(board.isSafe(0, result.getMove()));
+        assertTrue(result.getDepth() > 1);
+    }
+
+    @Test
+    void reusesTreeNextTurnTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("1,1 5,5", "90:3,3 3,4 3,5", "70:5,2 6,2 6,3 6,4");
+        MonteCarloSearch engine = new MonteCarloSearch();
+        SearchResult result = engine.search(board, 0, System.nanoTime() + 50_000_000L);
+
+        SearchBoard next = new SearchBoard();
+        next.copyFrom(board);
+        next.step(new int[] { result.getMove(), 2 });
+        // a deadline already gone still runs one iteration
+        engine.search(next, 0, System.nanoTime());
+        assertTrue(engine.rootVisits() > 1);
+
+        MonteCarloSearch fresh = new MonteCarloSearch();
+        fresh.search(next, 0, System.nanoTime());
+        assertEquals(1, fresh.rootVisits());
+    }
+
+    @Test
+    void arenaFitsBudgetTest() {
+        // a node of a duel takes 25 bytes and 12 for each of its 8 move slots
+        assertEquals(Math.min(MonteCarloSearch.NODES, (1 << 20) / 121), MonteCarloSearch.nodesFor(1 << 20, 8));
+        // more snakes, fewer nodes
+        assertTrue(MonteCarloSearch.nodesFor(1 << 20, 32) < MonteCarloSearch.nodesFor(1 << 20, 8));
+        assertEquals(MonteCarloSearch.MIN_NODES, MonteCarloSearch.nodesFor(0, 32));
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MoveRequestDecoderTest {
+
+    private static final String MOVE_REQUEST = ("{'game':{'id':'game-1','timeout':500},'turn':7,"
+            + "'board':{'height':11,'width':13,'food':[{'x':5,'y':5},{'x':9,'y':0}],"
+            + "'hazards':[{'x':0,'y':0}],"
+            + "'snakes':[{'id':'other','name':'other','health':80,'body':[{'x':8,'y':8},{'x':8,'y':9}],'shout':''},"
+            + "{'id':'me','name':'me','health':90,'body':[{'x':1,'y':1},{'x':1,'y':2},{'x':1,'y':3}]}]},"
+            + "'you':{'id':'me','name':'me','health':90,'body':[{'x':1,'y':1},{'x':1,'y':2},{'x':1,'y':3}]}}")
+            .replace('\'', '"');
+
+    private MoveRequestDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new MoveRequestDecoder();
+    }
+
+    @Test
+    void decodeTest() throws IOException {
+        MoveRequest request = decoder.decode(MOVE_REQUEST.getBytes(StandardCharsets.UTF_8), new MoveRequest());
+        assertEquals("game-1", request.getGameId());
+        assertEquals(500, request.timeout);
+        assertEquals(7, request.getTurn());
+        assertEquals(13, request.getWidth());
+        assertEquals(11, request.getHeight());
+        assertEquals(2, request.foodCount);
+        assertEquals(9, request.foodX[1]);
+        assertEquals(1, request.hazardCount);
+        assertEquals(2, request.getSnakeCount());
+        assertEquals(1, request.getYouIndex());
+        assertEquals("me", request.getYouId());
+        assertEquals(90, request.health[1]);
+        assertEquals(3, request.bodyLength[1]);
+        assertEquals(1, request.tailX(1));
+        assertEquals(3, request.tailY(1));
+        assertEquals(8, request.headX(0));
+        assertEquals(5, request.segmentCount);
+    }
+
+    @Test
+    void youBeforeBoardTest() throws IOException {
+        String reordered = "{\"you\":{\"id\":\"me\",\"body\":[{\"x\":2,\"y\":2}]},"
+                + "\"board\":{\"width\":7,\"height\":7,\"snakes\":[{\"id\":\"other\",\"body\":[{\"x\":4,\"y\":4}]},"
+                + "{\"id\":\"me\",\"body\":[{\"x\":2,\"y\":2}]}]}}";
+        MoveRequest request = decoder.decode(reordered.getBytes(StandardCharsets.UTF_8), new MoveRequest());
+        assertEquals(2, request.getSnakeCount());
+        assertEquals("me", request.getYouId());
+        assertEquals(2, request.headX(request.getYouIndex()));
+        assertEquals(4, request.headX(0));
+    }
+
+    @Test
+    void rulesetTest() throws IOException {
+        String wrapped = "{\"game\":{\"ruleset\":{\"name\":\"wrapped\",\"version\":\"v1\","
+                + "\"settings\":{\"foodSpawnChance\":15,\"hazardDamagePerTurn\":30,"
+                + "\"royale\":{\"shrinkEveryNTurns\":20}}}}}";
+        MoveRequest request = decoder.decode(wrapped.getBytes(StandardCharsets.UTF_8), new MoveRequest());
+        assertEquals(Ruleset.WRAPPED, request.getRuleset());
+        assertEquals(30, request.hazardDamage);
+
+        decoder.decode(MOVE_REQUEST.getBytes(StandardCharsets.UTF_8), request);
+        assertEquals(Ruleset.STANDARD, request.getRuleset());
+        assertEquals(Ruleset.HAZARD_DAMAGE, request.hazardDamage);
+        String unknown = "{\"game\":{\"ruleset\":{\"name\":\"solo\",\"settings\":null}}}";
+        assertEquals(Ruleset.STANDARD,
+                decoder.decode(unknown.getBytes(StandardCharsets.UTF_8), request).getRuleset());
+    }
+
+    @Test
+    void reuseClearsPreviousRequestTest() throws IOException {
+        MoveRequest request = new MoveRequest();
+        decoder.decode(MOVE_REQUEST.getBytes(StandardCharsets.UTF_8), request);
+        decoder.decode("{}".getBytes(StandardCharsets.UTF_8), request);
+        assertEquals(0, request.getSnakeCount());
+        assertEquals(0, request.foodCount);
+        assertEquals(-1, request.getYouIndex());
+    }
+}
@@ -0,0 +1,62 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NetworkSlackTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void noRoundTripYetTest() {
+        NetworkSlack slack = new NetworkSlack();
+        assertEquals(-1, slack.roundTrip());
+        assertEquals(150 * MS, slack.slack(500));
+        assertEquals(350 * MS, slack.budget(500));
+        assertEquals(Long.MAX_VALUE, slack.budget(0));
+    }
+
+    @Test
+    void quickestGapTest() {
+        NetworkSlack slack = new NetworkSlack();
+        long now = 0;
+        // the other snakes kept the engine waiting on every turn but the second
+        long[] gaps = { 120 * MS, 40 * MS, 300 * MS, 90 * MS };
+        for (long gap : gaps) {
+            slack.replied(now);
+            now += gap;
+            slack.arrived(now);
+        }
+        assertEquals(40 * MS, slack.roundTrip());
+        assertEquals(40 * MS + NetworkSlack.MARGIN_NANOS, slack.slack(500));
+        assertEquals(500 * MS - 40 * MS - NetworkSlack.MARGIN_NANOS, slack.budget(500));
+    }
+
+    @Test
+    void oldGapsForgottenTest() {
+        NetworkSlack slack = new NetworkSlack();
+        long now = 0;
+        slack.replied(now);
+        now += 5 * MS;
+        slack.arrived(now);
+        for (int i = 0; i < NetworkSlack.WINDOW; i++) {
+            slack.replied(now);
+            now += 60 * MS;
+            slack.arrived(now);
+        }
+        assertEquals(60 * MS, slack.roundTrip());
+    }
+
+    @Test
+    void slackBoundsTest() {
+        NetworkSlack slack = new NetworkSlack();
+        slack.replied(0);
+        slack.arrived(900 * MS);
+        assertEquals(250 * MS, slack.slack(500));
+        slack.replied(1000 * MS);
+        slack.arrived(1000 * MS);
+        assertEquals(NetworkSlack.MARGIN_NANOS, slack.slack(500));
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeMap;
+
+import static com.battlesnake.starter.SearchBoardTest.board;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OpeningBookTest {
+
+    private static final int UP = 0;
+    private static final int DOWN = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+
+    /**
+     * A book with one move, given as it is on {@code board}.
+     */
+    private static OpeningBook bookOf(SearchBoard board, int you, int move) throws IOException {
+        long canonical = OpeningBook.canonicalKey(board, you);
+        TreeMap<Long, OpeningBook.Entry> entries = new TreeMap<>();
+        entries.put(OpeningBook.key(canonical),
+                new OpeningBook.Entry(OpeningBook.toOrientation(move, OpeningBook.transform(canonical)), 5, 10));
+        Path file = Files.createTempDirectory("book").resolve("book.bin");
+        OpeningBook.write(file, entries);
+        return OpeningBook.open(file);
+    }
+
+    @Test
+    void symmetricPositionsShareAnEntryTest() throws IOException {
+        SearchBoard board = board("3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3");
+        // mirrored left to right, with the opponent listed first
+        SearchBoard mirrored = board("3,0", "80:1,5 1,4 1,3", "90:5,1 5,2 5,3");
+        // mirrored across the diagonal
+        SearchBoard transposed = board("0,3", "90:1,1 2,1 3,1", "80:5,5 4,5 3,5");
+
+        OpeningBook book = bookOf(board, 0, LEFT);
+        assertEquals(1, book.size());
+        assertEquals(LEFT, book.probe(board, 0));
+        assertEquals(RIGHT, book.probe(mirrored, 1));
+        assertEquals(UP, book.probe(transposed, 0));
+    }
+
+    @Test
+    void differentPositionsDontTest() throws IOException {
+        SearchBoard board = board("3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3");
+        OpeningBook book = bookOf(board, 0, DOWN);
+        assertEquals(-1, book.probe(board, 1));
+        assertEquals(-1, book.probe(board("3,1", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3"), 0));
+        assertEquals(-1, book.probe(board("3,0", "89:1,1 1,2 1,3", "80:5,5 5,4 5,3"), 0));
+        assertNotEquals(OpeningBook.key(OpeningBook.canonicalKey(board, 0)),
+                OpeningBook.key(OpeningBook.canonicalKey(board, 1)));
+    }
+
+    @Test
+    void movesSurviveEveryOrientationTest() {
+        for (int t = 0; t < 8; t++)
+            for (int move = 0; move < 4; move++)
+                assertEquals(move, OpeningBook.fromOrientation(OpeningBook.toOrientation(move, t), t));
+    }
+
+    @Test
+    void notABookTest() throws IOException {
+        Path file = Files.createTempFile("book", ".bin");
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+
+    @Test
+    void generatorExtendsBookTest() throws IOException {
+        Path file = Files.createTempDirectory("book").resolve("book.bin");
+        Simulator simulator = new Simulator(7, 7, 500);
+
+        OpeningBookGenerator first = new OpeningBookGenerator(20_000_000L, 1);
+        first.play(simulator, "book-1", 2, 1, 3);
+        OpeningBook.write(file, first.getBook());
+        int written = first.getBook().size();
+        assertTrue(written > 0);
+
+        OpeningBookGenerator second = new OpeningBookGenerator(20_000_000L, 1);
+        second.extend(OpeningBook.open(file));
+        assertEquals(written, second.getBook().size());
+        // the same game again is all in the book already
+        second.play(simulator, "book-1", 2, 1, 3);
+        assertEquals(0, second.getSearched());
+        second.play(simulator, "book-2", 3, 2, 3);
+        OpeningBook.write(file, second.getBook());
+        assertTrue(OpeningBook.open(file).size() > written);
+    }
+
+}
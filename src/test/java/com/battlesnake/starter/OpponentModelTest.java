@@ -0,0 +1,133 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OpponentModelTest {
+
+    @BeforeEach
+    void setUp() {
+        OpponentModel.forgetAll();
+    }
+
+    @Test
+    void learnsFoodChaserTest() throws IOException {
+        OpponentModel model = new OpponentModel();
+        SearchBoard board = new SearchBoard();
+        zigZag(model, board, "g1", 10);
+
+        double[] odds = new double[4];
+        assertTrue(model.predict(board, 1, odds));
+        // the last move was up, so right is towards the food without going straight on
+        assertEquals(0, odds[1], 1e-9);
+        assertTrue(odds[3] > 0.5);
+        assertTrue(odds[3] > odds[0] && odds[3] > odds[2]);
+        assertEquals(1.0, odds[0] + odds[1] + odds[2] + odds[3], 1e-9);
+    }
+
+    @Test
+    void unknownSnakeTest() throws IOException {
+        OpponentModel model = new OpponentModel();
+        SearchBoard board = new SearchBoard();
+        zigZag(model, board, "g1", 3);
+        assertFalse(model.isConfident(1));
+        assertFalse(model.isConfident(0));
+        assertFalse(model.predict(board, 1, new double[4]));
+    }
+
+    @Test
+    void rememberedAcrossGamesTest() throws IOException {
+        zigZag(new OpponentModel(), new SearchBoard(), "g1", 10);
+
+        OpponentModel next = new OpponentModel();
+        SearchBoard board = new SearchBoard();
+        board.load(request("g2", 0, "zigzag", snake(2, 10, 1, 10, 0, 10)));
+        next.observe(request("g2", 0, "zigzag", snake(2, 10, 1, 10, 0, 10)), board);
+        assertTrue(next.isConfident(1));
+
+        OpponentModel stranger = new OpponentModel();
+        MoveRequest request = request("g3", 0, "someone else", snake(2, 10, 1, 10, 0, 10));
+        board.load(request);
+        stranger.observe(request, board);
+        assertFalse(stranger.isConfident(1));
+    }
+
+    @Test
+    void wrappedFeaturesTest() throws IOException {
+        // the opponent came in across the left edge going right, with food a
+        // column behind it across that edge
+        String json = "{\"game\":{\"id\":\"w\",\"ruleset\":{\"name\":\"wrapped\"}},\"turn\":5,"
+                + "\"board\":{\"width\":7,\"height\":7,\"food\":[{\"x\":6,\"y\":0}],\"snakes\":["
+                + "{\"id\":\"us\",\"health\":90,\"body\":[" + snake(3, 3, 3, 4, 3, 5) + "]},"
+                + "{\"id\":\"them\",\"health\":90,\"body\":[" + snake(0, 3, 6, 3, 5, 3) + "]}]},"
+                + "\"you\":{\"id\":\"us\"}}";
+        MoveRequest request = new MoveRequestDecoder().decode(json.getBytes(StandardCharsets.UTF_8), new MoveRequest());
+        SearchBoard board = new SearchBoard();
+        board.load(request);
+        OpponentModel model = new OpponentModel(false);
+        model.observe(request, board);
+
+        int right = model.features(board, 1, 3);
+        assertTrue((right & 1 << OpponentModel.STRAIGHT) != 0);
+        // a wrapped board has no edges
+        assertEquals(0, right & 1 << OpponentModel.EDGE);
+        // going right leaves the food behind, going up closes in on it
+        assertEquals(0, right & 1 << OpponentModel.FOOD);
+        assertTrue((model.features(board, 1, 0) & 1 << OpponentModel.FOOD) != 0);
+    }
+
+    /**
+     * Plays an opponent that heads for the food in the top right corner going
+     * right and up in turn, with us sitting still in the top left.
+     */
+    private static void zigZag(OpponentModel model, SearchBoard board, String game, int turns)
+            throws IOException {
+        Deque<int[]> body = new ArrayDeque<>();
+        body.add(new int[] { 2, 10 });
+        body.add(new int[] { 1, 10 });
+        body.add(new int[] { 0, 10 });
+        for (int turn = 0; turn < turns; turn++) {
+            if (turn > 0) {
+                int[] head = body.peekFirst();
+                body.addFirst(turn % 2 == 1 ? new int[] { head[0], head[1] - 1 } : new int[] { head[0] + 1, head[1] });
+                body.removeLast();
+            }
+            int[] coords = new int[body.size() * 2];
+            int i = 0;
+            for (int[] point : body) {
+                coords[i++] = point[0];
+                coords[i++] = point[1];
+            }
+            MoveRequest request = request(game, turn, "zigzag", snake(coords));
+            board.load(request);
+            model.observe(request, board);
+        }//for
+    }
+
+    private static String snake(int... coords) {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < coords.length; i += 2)
+            json.append(i == 0 ? "" : ",").append("{\"x\":").append(coords[i]).append(",\"y\":").append(coords[i + 1])
+                    .append('}');
+        return json.toString();
+    }
+
+    private static MoveRequest request(String game, int turn, String name, String body) throws IOException {
+        String json = "{\"game\":{\"id\":\"" + game + "\"},\"turn\":" + turn
+                + ",\"board\":{\"width\":11,\"height\":11,\"food\":[{\"x\":10,\"y\":0}],\"snakes\":["
+                + "{\"id\":\"us\",\"name\":\"us\",\"health\":90,\"body\":[{\"x\":0,\"y\":0},{\"x\":0,\"y\":1},{\"x\":0,\"y\":2}]},"
+                + "{\"id\":\"" + game + "-them\",\"name\":\"" + name + "\",\"health\":90,\"body\":[" + body + "]}]},"
+                + "\"you\":{\"id\":\"us\"}}";
+        return new MoveRequestDecoder().decode(json.getBytes(StandardCharsets.UTF_8), new MoveRequest());
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelSearchTest {
+
+    @Test
+    void agreesWithSingleThreadedSearchTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("1,1 5,5", "90:3,3 3,4 3,5", "70:5,2 6,2 6,3 6,4");
+        SearchResult single = new ParanoidSearch().search(board, 0, System.nanoTime() + 50_000_000L);
+        SearchResult wide = new ParallelSearch().search(board, 0, System.nanoTime() + 50_000_000L);
+        assertTrue(single.getDepth() > 0);
+        assertTrue(wide.getDepth() > 0);
+        assertTrue(board.isSafe(0, single.getMove()));
+        assertTrue(board.isSafe(0, wide.getMove()));
+    }
+
+    @Test
+    void avoidsWallTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:0,0 1,0 2,0");
+        SearchResult result = new ParallelSearch().search(board, 0, System.nanoTime() + 50_000_000L);
+        assertEquals(1, result.getMove());
+    }
+
+    @Test
+    void safeMoveEveryRunTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("2,2", "90:3,3 3,4 3,5", "90:5,5 5,6 6,6");
+        ParallelSearch engine = new ParallelSearch();
+        for (int run = 0; run < 5; run++) {
+            SearchResult result = engine.search(board, 0, System.nanoTime() + 20_000_000L);
+            assertTrue(result.getDepth() > 0);
+            assertTrue(board.isSafe(0, result.getMove()));
+            assertTrue(result.getScore() > ParanoidSearch.LOSS);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParanoidSearchTest {
+
+    private static final long BUDGET_NANOS = 100_000_000L;
+
+    @Test
+    void avoidsWallTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:0,0 1,0 2,0");
+        SearchResult result = new ParanoidSearch().search(board, 0, System.nanoTime() + BUDGET_NANOS);
+        assertEquals(1, result.getMove());
+        assertTrue(result.getDepth() > 0);
+    }
+
+    @Test
+    void avoidsLosingHeadToHeadTest() throws IOException {
+        // going right meets the longer snake's head, up and down are both fine
+        SearchBoard board = SearchBoardTest.board("", "90:2,3 1,3 0,3", "90:4,3 5,3 6,3 6,4");
+        SearchResult result = new ParanoidSearch().search(board, 0, System.nanoTime() + BUDGET_NANOS);
+        assertTrue(result.getMove() == 0 || result.getMove() == 1);
+    }
+
+    @Test
+    void takesWinningHeadToHeadTest() throws IOException {
+        // the shorter snake is stuck in the corner and can only come to us
+        SearchBoard board = SearchBoardTest.board("", "90:1,1 1,2 1,3 1,4", "90:0,0 0,1 0,2");
+        SearchResult result = new ParanoidSearch().search(board, 0, System.nanoTime() + BUDGET_NANOS);
+        assertTrue(result.getScore() >= ParanoidSearch.WIN - ParanoidSearch.MAX_DEPTH);
+    }
+
+    @Test
+    void returnsSomethingWithNoTimeTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:3,3 3,4 3,5");
+        SearchResult result = new ParanoidSearch().search(board, 0, System.nanoTime());
+        assertTrue(result.getMove() >= 0 && result.getMove() < 4);
+    }
+
+    @Test
+    void stopsAtDeadlineTest() throws IOException {
+        // many snakes, so most nodes are replies and leaves rather than our own moves
+        SearchBoard board = SearchBoardTest.board("1,1 5,5 3,0", "90:3,3 2,3 2,4", "80:4,2 3,2 2,2 1,2",
+                "80:0,6 1,6 2,6", "80:4,0 5,0 6,0", "80:6,4 6,5 6,6");
+        ParanoidSearch engine = new ParanoidSearch();
+        for (int round = 0; round < 5; round++) {
+            long started = System.nanoTime();
+            engine.search(board, 0, started + 20_000_000L);
+            long over = System.nanoTime() - started - 20_000_000L;
+            assertTrue(over < 20_000_000L, "over by " + over);
+        }
+    }
+
+    @Test
+    void reportsProgressTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:0,0 1,0 2,0");
+        List<Integer> depths = new ArrayList<>();
+        SearchResult result = new ParanoidSearch().search(board, 0, System.nanoTime() + BUDGET_NANOS,
+                (move, depth) -> {
+                    assertEquals(1, move);
+                    depths.add(depth);
+                });
+        assertEquals(result.getDepth(), depths.size());
+        for (int i = 0; i < depths.size(); i++)
+            assertEquals(i + 1, (int) depths.get(i));
+    }
+}
@@ -0,0 +1,68 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static com.battlesnake.starter.SearchBoardTest.cell;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PathFinderTest {
+
+    @Test
+    void distanceTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:3,3 3,4 3,5");
+        PathFinder paths = new PathFinder();
+        paths.update(board);
+        assertEquals(0, paths.distance(0, cell(board, 3, 3)));
+        assertEquals(3, paths.distance(0, cell(board, 3, 0)));
+        assertEquals(0, paths.firstMove(0, cell(board, 3, 0)));
+        // straight down is our own body, so the path has to go round it
+        assertEquals(5, paths.distance(0, cell(board, 3, 6)));
+        assertNotEquals(1, paths.firstMove(0, cell(board, 3, 6)));
+    }
+
+    @Test
+    void closestFoodWonTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("0,3 6,3", "90:2,3 2,4 2,5", "90:5,3 5,4 5,5 5,6");
+        PathFinder paths = new PathFinder();
+        paths.update(board);
+        assertEquals(cell(board, 0, 3), paths.closestFoodWon(board, 0));
+        assertEquals(cell(board, 6, 3), paths.closestFoodWon(board, 1));
+        assertEquals(2, paths.firstMove(0, cell(board, 0, 3)));
+    }
+
+    @Test
+    void tiedFoodTest() throws IOException {
+        // same distance and same length: going for it would be a head-to-head we can't win
+        SearchBoard board = SearchBoardTest.board("3,0", "90:1,2 1,3 1,4", "90:5,2 5,3 5,4");
+        PathFinder paths = new PathFinder();
+        paths.update(board);
+        assertEquals(-1, paths.closestFoodWon(board, 0));
+        assertEquals(-1, paths.closestFoodWon(board, 1));
+    }
+
+    @Test
+    void aStarTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:3,3 3,4 3,5");
+        PathFinder paths = new PathFinder();
+        int around = paths.aStar(board, 0, cell(board, 3, 6));
+        assertTrue(around == 2 || around == 3);
+        assertEquals(0, paths.aStar(board, 0, cell(board, 3, 0)));
+        assertEquals(3, paths.aStar(board, 0, cell(board, 6, 3)));
+    }
+
+    @Test
+    void cacheFollowsBoardTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:3,3 3,4 3,5");
+        PathFinder paths = new PathFinder();
+        paths.update(board);
+        assertEquals(3, paths.distance(0, cell(board, 3, 0)));
+        board.step(new int[] { 0 });
+        paths.update(board);
+        assertEquals(2, paths.distance(0, cell(board, 3, 0)));
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.battlesnake.starter.SearchBoardTest.board;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PositionCacheTest {
+
+    private static final int DOWN = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+    private static final int POSITION_CACHE_DEPTH = 3;
+
+    @Test
+    void mirroredPositionHitsTest() throws IOException {
+        PositionCache cache = new PositionCache(1024);
+        SearchBoard board = board("3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3");
+        // mirrored left to right, with the opponent listed first
+        SearchBoard mirrored = board("3,0", "80:1,5 1,4 1,3", "90:5,1 5,2 5,3");
+        assertEquals(-1, cache.probe(OpeningBook.canonicalKey(board, 0), 1));
+
+        cache.store(OpeningBook.canonicalKey(board, 0), LEFT, 4, 100);
+        assertEquals(LEFT, cache.probe(OpeningBook.canonicalKey(board, 0), 4));
+        assertEquals(RIGHT, cache.probe(OpeningBook.canonicalKey(mirrored, 1), 4));
+        // the same squares seen from the other snake are another position
+        assertEquals(-1, cache.probe(OpeningBook.canonicalKey(board, 1), 1));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void otherRulesMissTest() throws IOException {
+        PositionCache cache = new PositionCache(1024);
+        SearchBoard standard = SearchBoardTest.ruledBoard("standard", "3,3", "3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3");
+        SearchBoard wrapped = SearchBoardTest.ruledBoard("wrapped", "3,3", "3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3");
+        SearchBoard royale = SearchBoardTest.ruledBoard("royale", "3,3", "3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3");
+        SearchBoard harsh = SearchBoardTest.ruledBoard("royale", "3,3", "3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3");
+        harsh.hazardDamage = 50;
+
+        cache.store(OpeningBook.canonicalKey(standard, 0), LEFT, 4, 100);
+        assertEquals(-1, cache.probe(OpeningBook.canonicalKey(wrapped, 0), 1));
+        assertEquals(-1, cache.probe(OpeningBook.canonicalKey(royale, 0), 1));
+        cache.store(OpeningBook.canonicalKey(royale, 0), DOWN, 4, 100);
+        assertEquals(-1, cache.probe(OpeningBook.canonicalKey(harsh, 0), 1));
+        assertEquals(LEFT, cache.probe(OpeningBook.canonicalKey(standard, 0), 4));
+        assertEquals(DOWN, cache.probe(OpeningBook.canonicalKey(royale, 0), 4));
+    }
+
+    @Test
+    void keepsTheDeeperSearchTest() throws IOException {
+        PositionCache cache = new PositionCache(1024);
+        long key = OpeningBook.canonicalKey(board("3,0", "90:1,1 1,2 1,3", "80:5,5 5,4 5,3"), 0);
+        cache.store(key, LEFT, 5, 100);
+        cache.store(key, DOWN, 2, 300);
+        assertEquals(LEFT, cache.probe(key, 3));
+        // too shallow to trust
+        assertEquals(-1, cache.probe(key, 6));
+        cache.store(key, DOWN, 6, 300);
+        assertEquals(DOWN, cache.probe(key, 6));
+    }
+
+    @Test
+    void dropsLeastRecentlyUsedTest() throws IOException {
+        PositionCache cache = new PositionCache(32);
+        List<Long> keys = new ArrayList<>();
+        // food left of the snake only, the right side would mirror it
+        for (int health = 80; health < 90; health++)
+            for (int x = 0; x < 3; x++)
+                for (int y = 0; y < 7; y++)
+                    keys.add(OpeningBook.canonicalKey(board(x + "," + y, health + ":3,3 3,4 3,5"), 0));
+        long first = keys.get(0);
+        cache.store(first, LEFT, 3, 0);
+        for (long key : keys.subList(1, keys.size())) {
+            // keep the first one in use
+            cache.probe(first, 1);
+            cache.store(key, DOWN, 3, 0);
+        }
+        assertTrue(cache.size() <= 32);
+        assertEquals(LEFT, cache.probe(first, 1));
+    }
+
+    @Test
+    void concurrentGamesTest() throws InterruptedException, IOException {
+        PositionCache cache = new PositionCache(256);
+        long[] keys = new long[40];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = OpeningBook.canonicalKey(board((i % 7) + "," + (i / 7), "90:3,6 4,6 5,6"), 0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int round = 0; round < 2000; round++) {
+                    long key = keys[round % keys.length];
+                    cache.store(key, DOWN, 3, round);
+                    cache.probe(key, 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertTrue(cache.size() <= 256);
+        for (long key : keys)
+            assertEquals(DOWN, cache.probe(key, 1));
+    }
+
+    @Test
+    void shallowEntryDoesNotReplaceSearchTest() throws IOException {
+        PositionCache cache = GameState.getPositionCache();
+        GameState state = new GameState("shallow");
+        state.nextMove(request(0, "{'x':1,'y':1},{'x':1,'y':2},{'x':1,'y':3}"), System.nanoTime() + 200_000_000L);
+        int depth = state.getLastSearch().getDepth();
+        assertTrue(depth > POSITION_CACHE_DEPTH, "searched " + depth);
+
+        // another game looked one turn less far ahead than this one can
+        MoveRequest next = request(1, "{'x':1,'y':0},{'x':1,'y':1},{'x':1,'y':2}");
+        cache.store(canonicalKey(next), RIGHT, depth - 1, 0);
+        state.nextMove(next, System.nanoTime() + 200_000_000L);
+        assertNotNull(state.getLastSearch());
+
+        // and one further
+        MoveRequest after = request(2, "{'x':2,'y':0},{'x':1,'y':0},{'x':1,'y':1}");
+        cache.store(canonicalKey(after), RIGHT, 64, 0);
+        assertEquals("right", state.nextMove(after, System.nanoTime() + 200_000_000L));
+        assertNull(state.getLastSearch());
+    }
+
+    private static MoveRequest request(int turn, String body) throws IOException {
+        String json = "{'game':{'id':'shallow','timeout':500},'turn':" + turn
+                + ",'board':{'width':7,'height':7,'food':[{'x':5,'y':1}],'snakes':["
+                + "{'id':'a','health':90,'body':[" + body + "]},"
+                + "{'id':'b','health':90,'body':[{'x':5,'y':5},{'x':5,'y':6},{'x':4,'y':6}]}]},"
+                + "'you':{'id':'a'}}";
+        return new MoveRequestDecoder().decode(json.replace('\'', '"').getBytes(StandardCharsets.UTF_8),
+                new MoveRequest());
+    }
+
+    private static long canonicalKey(MoveRequest request) {
+        SearchBoard board = new SearchBoard();
+        board.load(request);
+        return OpeningBook.canonicalKey(board, request.youIndex);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplayRecorderTest {
+
+    private static byte[] request(int turn, int headY) {
+        String you = "{\"id\":\"me\",\"health\":90,\"body\":[{\"x\":3,\"y\":" + headY + "},{\"x\":3,\"y\":"
+                + (headY + 1) + "},{\"x\":3,\"y\":" + (headY + 2) + "}]}";
+        return ("{\"game\":{\"id\":\"replay-test\",\"timeout\":500},\"turn\":" + turn
+                + ",\"board\":{\"width\":11,\"height\":11,\"food\":[],\"snakes\":[" + you + "]},\"you\":" + you + "}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Path recordGame(Path dir) {
+        ReplayRecorder recorder = new ReplayRecorder(dir);
+        String key = GameStateStore.key("replay-test", "me");
+        recorder.record(key, ReplayFile.START, request(0, 6), null, 1000);
+        for (int turn = 1; turn <= 3; turn++)
+            recorder.record(key, ReplayFile.MOVE, request(turn, 6 - turn), "up", 2000 + turn);
+        recorder.record(key, ReplayFile.END, request(4, 2), null, 500);
+        return recorder.fileFor(key);
+    }
+
+    @Test
+    void roundTripTest() throws IOException {
+        Path dir = Files.createTempDirectory("replays");
+        Path file = recordGame(dir);
+        assertTrue(Files.exists(file));
+
+        List<ReplayFile.Record> records = ReplayFile.read(file);
+        assertEquals(5, records.size());
+        assertEquals(ReplayFile.START, records.get(0).route);
+        assertEquals(ReplayFile.MOVE, records.get(2).route);
+        assertEquals("up", records.get(2).reply);
+        assertEquals(2002, records.get(2).nanos);
+        assertArrayEquals(request(2, 4), records.get(2).body);
+        assertEquals("", records.get(4).reply);
+    }
+
+    @Test
+    void appendKeepsOneHeaderTest() throws IOException {
+        Path dir = Files.createTempDirectory("replays");
+        Path file = recordGame(dir);
+        recordGame(dir);
+        assertEquals(10, ReplayFile.read(file).size());
+    }
+
+    @Test
+    void truncatedRecordIsIgnoredTest() throws IOException {
+        Path dir = Files.createTempDirectory("replays");
+        Path file = recordGame(dir);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertEquals(4, ReplayFile.read(file).size());
+    }
+
+    @Test
+    void runnerTest() throws IOException {
+        Path dir = Files.createTempDirectory("replays");
+        recordGame(dir);
+        ReplayRunner runner = new ReplayRunner();
+        runner.replay(dir);
+        assertEquals(1, runner.getGames());
+        assertEquals(3, runner.getLatency().getCount());
+        // the recording claims we went down into our own neck, which nothing would pick
+        runner = new ReplayRunner();
+        Path wrong = Files.createTempDirectory("replays");
+        ReplayRecorder recorder = new ReplayRecorder(wrong);
+        String key = GameStateStore.key("replay-test", "me");
+        recorder.record(key, ReplayFile.MOVE, request(1, 5), "down", 1);
+        recorder.closeAll();
+        runner.replay(wrong);
+        assertEquals(1, runner.getChanged().size());
+        assertTrue(runner.getChanged().get(0).contains("turn 1: down -> "), runner.getChanged().get(0));
+    }
+
+    @Test
+    void runnerRepeatsItselfTest() throws IOException {
+        Path dir = Files.createTempDirectory("replays");
+        recordGame(dir);
+        ReplayRunner first = new ReplayRunner();
+        first.replay(dir);
+        ReplayRunner second = new ReplayRunner();
+        second.replay(dir);
+        assertEquals(first.getChanged(), second.getChanged());
+        // an engine that searches can still be asked for
+        ReplayRunner searched = new ReplayRunner("paranoid");
+        searched.replay(dir);
+        assertEquals(3, searched.getLatency().getCount());
+    }
+
+}
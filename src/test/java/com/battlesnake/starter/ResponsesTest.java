@@ -0,0 +1,43 @@
+package com.battlesnake.starter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ResponsesTest {
+
+    @Test
+    void moveTest() throws IOException {
+        assertSame(Responses.move("left"), Responses.move(new String("left")));
+        assertEquals("left", Responses.move("left").get("move"));
+        assertSame(Responses.encode(Responses.move("up")), Responses.encode(Responses.move("up")));
+        assertEquals("{\"move\":\"up\"}", new String(Responses.encode(Responses.move("up")), StandardCharsets.UTF_8));
+        assertEquals("{\"move\":\"right\"}",
+                new String(Responses.encode(Responses.move("right")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void startTest() throws IOException {
+        JsonNode start = new ObjectMapper().readTree(Responses.encode(Responses.APPEARANCE));
+        assertEquals("#00FF00", start.get("color").asText());
+        assertEquals("pixel", start.get("headType").asText());
+        assertEquals("bolt", start.get("tailType").asText());
+        assertEquals("{\"message\":\"pong\"}", new String(Responses.encode(Responses.PONG), StandardCharsets.UTF_8));
+        assertEquals("{}", new String(Responses.encode(Responses.EMPTY), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void uncachedTest() throws IOException {
+        assertEquals("{\"shout\":\"hi\"}",
+                new String(Responses.encode(Collections.singletonMap("shout", "hi")), StandardCharsets.UTF_8));
+        assertEquals("null", new String(Responses.encode(null), StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,339 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchBoardTest {
+
+    /**
+     * Builds a 7x7 board. Each snake is given as "health:x,y x,y ...", head first.
+     */
+    static SearchBoard board(String food, String... snakes) throws IOException {
+        return ruledBoard("standard", "", food, snakes);
+    }
+
+    /**
+     * Builds a 7x7 board under some rules, with hazards dealing the default damage.
+     */
+    static SearchBoard ruledBoard(String rules, String hazards, String food, String... snakes) throws IOException {
+        StringBuilder json = new StringBuilder("{\"game\":{\"ruleset\":{\"name\":\"").append(rules)
+                .append("\"}},\"board\":{\"width\":7,\"height\":7,\"hazards\":[").append(points(hazards))
+                .append("],\"food\":[");
+        json.append(points(food)).append("],\"snakes\":[");
+        for (int i = 0; i < snakes.length; i++) {
+            String[] parts = snakes[i].split(":");
+            if (i > 0)
+                json.append(',');
+            json.append("{\"id\":\"s").append(i).append("\",\"health\":").append(parts[0])
+                    .append(",\"body\":[").append(points(parts[1])).append("]}");
+        }
+        json.append("]}}");
+        MoveRequest request = new MoveRequestDecoder().decode(json.toString().getBytes(StandardCharsets.UTF_8),
+                new MoveRequest());
+        SearchBoard board = new SearchBoard();
+        board.load(request);
+        return board;
+    }
+
+    private static String points(String list) {
+        StringBuilder json = new StringBuilder();
+        for (String point : list.trim().split(" ")) {
+            if (point.isEmpty())
+                continue;
+            String[] xy = point.split(",");
+            if (json.length() > 0)
+                json.append(',');
+            json.append("{\"x\":").append(xy[0]).append(",\"y\":").append(xy[1]).append('}');
+        }
+        return json.toString();
+    }
+
+    static int cell(SearchBoard board, int x, int y) {
+        return y * board.getWidth() + x;
+    }
+
+    @Test
+    void moveTest() throws IOException {
+        SearchBoard board = board("", "90:3,3 3,4 3,5");
+        board.step(new int[] { 0 });
+        assertTrue(board.isAlive(0));
+        assertEquals(cell(board, 3, 2), board.headCell(0));
+        assertEquals(cell(board, 3, 4), board.tailCell(0));
+        assertEquals(3, board.getLength(0));
+        assertEquals(89, board.getHealth(0));
+        assertEquals(0, board.occupancy[cell(board, 3, 5)]);
+    }
+
+    @Test
+    void eatingGrowsAndHealsTest() throws IOException {
+        SearchBoard board = board("3,2", "50:3,3 3,4 3,5");
+        board.step(new int[] { 0 });
+        assertEquals(4, board.getLength(0));
+        assertEquals(100, board.getHealth(0));
+        assertEquals(0, board.foodCount);
+        // the new tail is stacked on the old one
+        assertEquals(2, board.occupancy[cell(board, 3, 4)]);
+        board.step(new int[] { 0 });
+        assertEquals(cell(board, 3, 4), board.tailCell(0));
+        assertEquals(1, board.occupancy[cell(board, 3, 4)]);
+    }
+
+    @Test
+    void starvationTest() throws IOException {
+        SearchBoard board = board("", "1:3,3 3,4 3,5");
+        board.step(new int[] { 0 });
+        assertFalse(board.isAlive(0));
+        assertEquals(0, board.occupancy[cell(board, 3, 2)]);
+    }
+
+    @Test
+    void wallTest() throws IOException {
+        SearchBoard board = board("", "90:0,3 1,3 2,3");
+        assertFalse(board.isSafe(0, 2));
+        board.step(new int[] { 2 });
+        assertFalse(board.isAlive(0));
+        for (int i = 0; i < 49; i++)
+            assertEquals(0, board.occupancy[i]);
+    }
+
+    @Test
+    void headToHeadTest() throws IOException {
+        SearchBoard board = board("", "90:2,3 1,3 0,3", "90:4,3 5,3 6,3 6,4");
+        board.step(new int[] { 3, 2 });
+        assertFalse(board.isAlive(0));
+        assertTrue(board.isAlive(1));
+
+        SearchBoard even = board("", "90:2,3 1,3 0,3", "90:4,3 5,3 6,3");
+        even.step(new int[] { 3, 2 });
+        assertFalse(even.isAlive(0));
+        assertFalse(even.isAlive(1));
+    }
+
+    @Test
+    void bodyCollisionTest() throws IOException {
+        SearchBoard board = board("", "90:3,3 3,4 3,5", "90:2,2 2,3 2,4 2,5");
+        board.step(new int[] { 2, 0 });
+        assertFalse(board.isAlive(0));
+        assertTrue(board.isAlive(1));
+    }
+
+    @Test
+    void chasingTailIsSafeTest() throws IOException {
+        SearchBoard board = board("", "90:3,3 4,3 4,4 3,4");
+        assertTrue(board.isSafe(0, 1));
+        board.step(new int[] { 1 });
+        assertTrue(board.isAlive(0));
+    }
+
+    @Test
+    void hazardTest() throws IOException {
+        SearchBoard board = ruledBoard("royale", "3,2 3,1", "3,1", "50:3,3 3,4 3,5");
+        board.step(new int[] { 0 });
+        assertEquals(50 - 1 - Ruleset.HAZARD_DAMAGE, board.getHealth(0));
+        assertEquals(board.computeHash(), board.getHash());
+        // food under a hazard heals instead
+        board.step(new int[] { 0 });
+        assertEquals(100, board.getHealth(0));
+
+        SearchBoard weak = ruledBoard("royale", "3,2", "", "15:3,3 3,4 3,5");
+        assertFalse(weak.isSafe(0, 0));
+        assertTrue(weak.isSafe(0, 2));
+        weak.step(new int[] { 0 });
+        assertFalse(weak.isAlive(0));
+
+        // stacked hazards hurt once each
+        SearchBoard stacked = ruledBoard("standard", "3,2 3,2", "", "50:3,3 3,4 3,5");
+        stacked.step(new int[] { 0 });
+        assertEquals(50 - 1 - 2 * Ruleset.HAZARD_DAMAGE, stacked.getHealth(0));
+    }
+
+    @Test
+    void wrappedTest() throws IOException {
+        SearchBoard board = ruledBoard("wrapped", "", "", "90:0,3 1,3 2,3");
+        assertTrue(board.isSafe(0, 2));
+        assertEquals(cell(board, 6, 3), board.destination(0, 2));
+        assertEquals(1, board.distance(cell(board, 0, 0), cell(board, 6, 0)));
+        board.step(new int[] { 2 });
+        assertTrue(board.isAlive(0));
+        assertEquals(cell(board, 6, 3), board.headCell(0));
+        board.step(new int[] { 0 });
+        board.step(new int[] { 0 });
+        board.step(new int[] { 0 });
+        board.step(new int[] { 0 });
+        assertEquals(cell(board, 6, 6), board.headCell(0));
+    }
+
+    @Test
+    void headingTest() throws IOException {
+        SearchBoard board = ruledBoard("wrapped", "", "", "90:0,3 6,3 5,3", "90:3,3 3,4 3,5");
+        // came in across the left edge going right
+        assertEquals(3, board.heading(0));
+        assertEquals(board.destination(1, board.heading(1)), cell(board, 3, 2));
+        SearchBoard start = board("", "90:3,3 3,3 3,3");
+        assertEquals(-1, start.heading(0));
+    }
+
+    @Test
+    void copyTest() throws IOException {
+        SearchBoard board = board("1,1", "90:3,3 3,4 3,5", "80:5,5 5,6");
+        SearchBoard copy = new SearchBoard().copyFrom(board);
+        copy.step(new int[] { 0, 0 });
+        assertEquals(cell(board, 3, 3), board.headCell(0));
+        assertEquals(cell(copy, 3, 2), copy.headCell(0));
+        assertEquals(79, copy.getHealth(1));
+    }
+
+    @Test
+    void updateFollowsGameTest() throws IOException {
+        List<Simulator.Player> players = new ArrayList<>();
+        List<CheckingPlayer> checkers = new ArrayList<>();
+        for (int s = 0; s < 4; s++) {
+            CheckingPlayer player = new CheckingPlayer(s);
+            players.add(player);
+            checkers.add(player);
+        }
+        // the royale's hazard closes in every few turns, and with it the health of whoever is in it
+        Simulator[] simulators = { new Simulator(7, 7, 500),
+                new Simulator(7, 7, 500, Ruleset.ROYALE, 3), new Simulator(7, 7, 500, Ruleset.WRAPPED, 0) };
+        int inPlace = 0;
+        int deaths = 0;
+        int meals = 0;
+        for (long seed = 1; seed <= 30; seed++) {
+            simulators[(int) (seed % simulators.length)].play("update-" + seed, players, seed);
+            for (CheckingPlayer player : checkers) {
+                inPlace += player.inPlace;
+                deaths += player.deaths;
+                meals += player.meals;
+                player.inPlace = player.deaths = player.meals = 0;
+            }
+        }
+        assertTrue(inPlace > 100);
+        // deaths and meals were followed in place too, not only plain moves
+        assertTrue(deaths > 0);
+        assertTrue(meals > 0);
+    }
+
+    @Test
+    void updateRebuildsOutOfStepTest() throws IOException {
+        SearchBoard board = board("1,1", "90:3,3 3,4 3,5");
+        MoveRequest skipped = new MoveRequestDecoder().decode(("{\"turn\":5,\"board\":{\"width\":7,\"height\":7,"
+                + "\"food\":[],\"snakes\":[{\"id\":\"s0\",\"health\":80,\"body\":[{\"x\":0,\"y\":0},"
+                + "{\"x\":0,\"y\":1},{\"x\":0,\"y\":2}]}]}}").getBytes(StandardCharsets.UTF_8), new MoveRequest());
+        assertFalse(board.update(skipped));
+        assertEquals(cell(board, 0, 0), board.headCell(0));
+        assertEquals(0, board.foodCount);
+        assertEquals(board.computeHash(), board.getHash());
+    }
+
+    @Test
+    void undoRestoresEveryTurnTest() throws IOException {
+        SearchBoard board = ruledBoard("royale", "0,0 1,0 2,0 3,3", "3,2 1,1 5,5 4,4 0,3",
+                "90:3,3 3,4 3,5", "60:5,2 6,2 6,3 6,4", "30:1,5 1,6 2,6");
+        SearchBoard[] before = new SearchBoard[40];
+        int[] moves = new int[board.snakeCount];
+        Random random = new Random(7);
+        int deaths = 0;
+        int meals = 0;
+        for (int game = 0; game < 200; game++) {
+            int plies = 0;
+            while (plies < before.length && board.opponentsAlive(-1) > 0) {
+                if (before[plies] == null)
+                    before[plies] = new SearchBoard();
+                before[plies].copyFrom(board);
+                for (int s = 0; s < board.snakeCount; s++)
+                    moves[s] = random.nextInt(4);
+                board.applyJointMove(moves);
+                assertEquals(board.computeHash(), board.getHash());
+                deaths += before[plies].opponentsAlive(-1) - board.opponentsAlive(-1);
+                meals += before[plies].foodCount - board.foodCount;
+                plies++;
+            }//while
+            while (plies > 0) {
+                board.undo();
+                plies--;
+                CheckingPlayer.assertSame(before[plies], board);
+                assertEquals(before[plies].turn, board.turn);
+            }//while
+        }//for
+        assertTrue(deaths > 0);
+        assertTrue(meals > 0);
+    }
+
+    /**
+     * Moves at random among its safe moves, checking on every turn that a board
+     * kept up to date with {@link SearchBoard#update(MoveRequest)} matches one
+     * loaded from scratch.
+     */
+    private static class CheckingPlayer implements Simulator.Player {
+        private final MoveRequestDecoder decoder = new MoveRequestDecoder();
+        private final SearchBoard updated = new SearchBoard();
+        private final SearchBoard loaded = new SearchBoard();
+        private final Random random;
+        int inPlace;
+        int deaths;
+        int meals;
+
+        CheckingPlayer(long seed) {
+            random = new Random(seed);
+        }
+
+        @Override
+        public void start(byte[] body) {
+        }
+
+        @Override
+        public String move(byte[] body) throws IOException {
+            MoveRequest request = decoder.decode(body, new MoveRequest());
+            int snakesBefore = updated.snakeCount;
+            int foodBefore = updated.foodCount;
+            if (updated.update(request)) {
+                inPlace++;
+                if (updated.snakeCount < snakesBefore)
+                    deaths++;
+                if (request.foodCount < foodBefore)
+                    meals++;
+            }
+            loaded.load(request);
+            assertSame(loaded, updated);
+
+            int[] safe = new int[4];
+            int count = 0;
+            for (int move = 0; move < 4; move++)
+                if (updated.isSafe(request.youIndex, move))
+                    safe[count++] = move;
+            return new String[] { "up", "down", "left", "right" }[count == 0 ? 0 : safe[random.nextInt(count)]];
+        }
+
+        @Override
+        public void end(byte[] body) {
+        }
+
+        private static void assertSame(SearchBoard expected, SearchBoard actual) {
+            assertEquals(expected.getHash(), actual.getHash());
+            assertEquals(actual.computeHash(), actual.getHash());
+            assertEquals(expected.snakeCount, actual.snakeCount);
+            assertEquals(expected.foodCount, actual.foodCount);
+            for (int s = 0; s < expected.snakeCount; s++) {
+                assertEquals(expected.isAlive(s), actual.isAlive(s));
+                assertEquals(expected.getHealth(s), actual.getHealth(s));
+                assertEquals(expected.getLength(s), actual.getLength(s));
+                for (int k = 0; k < expected.getLength(s); k++)
+                    assertEquals(expected.segment(s, k), actual.segment(s, k));
+            }//for
+            for (int cell = 0; cell < expected.cells; cell++) {
+                assertEquals(expected.occupancy[cell], actual.occupancy[cell]);
+                assertEquals(expected.hasFood(cell), actual.hasFood(cell));
+                assertEquals(expected.hazardDamage(cell), actual.hazardDamage(cell));
+            }//for
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimulatorTest {
+
+    private static final String[] MOVES = { "up", "down", "left", "right" };
+
+    /**
+     * Takes the first move that doesn't die on the spot and remembers what it saw.
+     */
+    private static class CautiousPlayer implements Simulator.Player {
+        final MoveRequest request = new MoveRequest();
+        final SearchBoard board = new SearchBoard();
+        final List<Integer> foodSeen = new ArrayList<>();
+        final List<Integer> hazardsSeen = new ArrayList<>();
+        int hash = 1;
+        boolean ended;
+
+        @Override
+        public void start(byte[] body) {
+            hash = 31 * hash + Arrays.hashCode(body);
+        }
+
+        @Override
+        public String move(byte[] body) throws IOException {
+            hash = 31 * hash + Arrays.hashCode(body);
+            new MoveRequestDecoder().decode(body, request);
+            board.load(request);
+            foodSeen.add(request.foodCount);
+            hazardsSeen.add(request.hazardCount);
+            for (int move = 0; move < 4; move++)
+                if (board.isSafe(request.youIndex, move))
+                    return MOVES[move];
+            return "up";
+        }
+
+        @Override
+        public void end(byte[] body) {
+            ended = true;
+        }
+    }
+
+    private static List<Simulator.Player> cautious(int snakes) {
+        List<Simulator.Player> players = new ArrayList<>();
+        for (int i = 0; i < snakes; i++)
+            players.add(new CautiousPlayer());
+        return players;
+    }
+
+    @Test
+    void sameSeedSameGameTest() throws IOException {
+        Simulator simulator = new Simulator(11, 11, 500);
+        List<Simulator.Player> first = cautious(4);
+        List<Simulator.Player> second = cautious(4);
+        Simulator.Result a = simulator.play("g", first, 42);
+        Simulator.Result b = simulator.play("g", second, 42);
+        assertEquals(a.turns, b.turns);
+        assertEquals(a.winner, b.winner);
+        for (int i = 0; i < 4; i++)
+            assertEquals(((CautiousPlayer) first.get(i)).hash, ((CautiousPlayer) second.get(i)).hash);
+
+        List<Simulator.Player> other = cautious(4);
+        simulator.play("g", other, 43);
+        assertNotEquals(((CautiousPlayer) first.get(0)).hash, ((CautiousPlayer) other.get(0)).hash);
+    }
+
+    @Test
+    void wallKillsTest() throws IOException {
+        Simulator.Player up = new Simulator.Player() {
+            @Override
+            public void start(byte[] body) {
+            }
+
+            @Override
+            public String move(byte[] body) {
+                return "up";
+            }
+
+            @Override
+            public void end(byte[] body) {
+            }
+        };
+        // every start spot is at most height - 2 from the top wall
+        Simulator.Result result = new Simulator(7, 7, 500).play("g", Arrays.asList(up), 1);
+        assertEquals(-1, result.winner);
+        assertTrue(result.turns <= 6, "turns " + result.turns);
+    }
+
+    @Test
+    void wrappedHasNoWallsTest() throws IOException {
+        Simulator.Player up = new Simulator.Player() {
+            @Override
+            public void start(byte[] body) {
+            }
+
+            @Override
+            public String move(byte[] body) {
+                return "up";
+            }
+
+            @Override
+            public void end(byte[] body) {
+            }
+        };
+        Simulator.Result result = new Simulator(7, 7, 500, Ruleset.WRAPPED, 0).play("g", Arrays.asList(up), 1);
+        assertTrue(result.turns > 6, "turns " + result.turns);
+    }
+
+    @Test
+    void royaleShrinksTest() throws IOException {
+        CautiousPlayer player = new CautiousPlayer();
+        new Simulator(7, 7, 500, Ruleset.ROYALE, 2).play("g", Arrays.asList(player), 3, 12);
+        assertEquals(Ruleset.ROYALE, player.request.getRuleset());
+        assertEquals(0, (int) player.hazardsSeen.get(0));
+        // a side closes in every other turn, by a row or column of what is left
+        for (int turn = 1; turn < player.hazardsSeen.size(); turn++)
+            assertTrue(player.hazardsSeen.get(turn) >= player.hazardsSeen.get(turn - 1));
+        assertEquals(0, (int) player.hazardsSeen.get(1));
+        assertEquals(7, (int) player.hazardsSeen.get(2));
+        assertTrue(player.hazardsSeen.get(4) > 7);
+    }
+
+    @Test
+    void foodNeverRunsOutTest() throws IOException {
+        List<Simulator.Player> players = cautious(1);
+        Simulator.Result result = new Simulator(7, 7, 500).play("g", players, 5);
+        CautiousPlayer player = (CautiousPlayer) players.get(0);
+        assertTrue(result.turns > 10);
+        assertTrue(player.ended);
+        for (int food : player.foodSeen)
+            assertTrue(food >= 1);
+    }
+
+    @Test
+    void gameEndsWithOneSnakeLeftTest() throws IOException {
+        Simulator.Result result = new Simulator(7, 7, 500).play("g", cautious(2), 3);
+        assertTrue(result.turns < Simulator.MAX_TURNS);
+        assertEquals(0, result.errors);
+    }
+
+    @Test
+    void selfPlayStaysOutOfSharedStateTest() throws IOException {
+        GameState.getPositionCache().clear();
+        OpponentModel.forgetAll();
+        List<Simulator.Player> players = Arrays.asList(new Simulator.HandlerPlayer(), new Simulator.HandlerPlayer());
+        Simulator.Result result = new Simulator(7, 7, 60).play("self-play", players, 5, 10);
+        assertTrue(result.turns > 1);
+        assertEquals(0, GameState.getPositionCache().size());
+        assertEquals(0, OpponentModel.knownCount());
+    }
+
+}
@@ -7,11 +7,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SnakeTest {
@@ -38,9 +41,9 @@ public class SnakeTest {
     void startTest() throws IOException {
         JsonNode startRequest = OBJECT_MAPPER.readTree("{}");
         Map<String, String> response = handler.start(startRequest);
-        assertEquals("#888888", response.get("color"));
-        assertEquals("regular", response.get("headType"));
-        assertEquals("regular", response.get("tailType"));
+        assertEquals("#00FF00", response.get("color"));
+        assertEquals("pixel", response.get("headType"));
+        assertEquals("bolt", response.get("tailType"));
     }
 
     @Test
@@ -63,4 +66,50 @@ public class SnakeTest {
         Map<String, String> response = handler.end(endRequest);
         assertEquals(0, response.size());
     }
+
+    @Test
+    void safeMoveTest() throws IOException {
+        assertEquals("left", Snake.Handler.safeMove(cornered()));
+    }
+
+    @Test
+    void shedMoveDoesNotWaitForBusyGameTest() throws Exception {
+        GameState state = new GameState("busy");
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // a search still holding the game
+        Thread search = new Thread(() -> {
+            state.getLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                state.getLock().unlock();
+            }
+        });
+        search.start();
+        locked.await();
+        long started = System.nanoTime();
+        String move = Snake.Handler.quickMove(state, cornered(), started + 30_000_000L);
+        long waited = System.nanoTime() - started;
+        release.countDown();
+        search.join();
+        assertEquals("left", move);
+        // waiting for the lock would have meant waiting for ever
+        assertTrue(waited < 1_000_000_000L, "waited " + waited);
+        assertNull(state.getBestMove(3));
+    }
+
+    /**
+     * In the bottom right corner with our neck above, so left is the only way out.
+     */
+    private static MoveRequest cornered() throws IOException {
+        String json = "{'game':{'id':'g','timeout':500},'turn':3,'board':{'width':7,'height':7,'food':[],"
+                + "'snakes':[{'id':'a','health':90,'body':[{'x':6,'y':6},{'x':6,'y':5},{'x':6,'y':4}]}]},"
+                + "'you':{'id':'a'}}";
+        return new MoveRequestDecoder().decode(json.replace('\'', '"').getBytes(StandardCharsets.UTF_8),
+                new MoveRequest());
+    }
 }
@@ -0,0 +1,65 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpaceAnalyzerTest {
+
+    @Test
+    void openBoardTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:3,3 3,4 3,5");
+        SpaceAnalyzer space = new SpaceAnalyzer();
+        // the whole board except the head; the body frees up as we go
+        assertEquals(48, space.reachable(board, 0, 1000));
+        assertEquals(5, space.reachable(board, 0, 5));
+    }
+
+    @Test
+    void pocketTest() throws IOException {
+        // our own neck curls round the top left corner, leaving two squares there
+        SearchBoard board = SearchBoardTest.board("", "90:2,0 2,1 1,1 0,1 0,2 0,3 0,4 0,5 0,6 1,6");
+        SpaceAnalyzer space = new SpaceAnalyzer();
+        int left = space.reachableAfterMove(board, 0, 2, 1000);
+        int right = space.reachableAfterMove(board, 0, 3, 1000);
+        assertEquals(2, left);
+        assertTrue(right > board.getLength(0));
+        assertEquals(0, space.reachableAfterMove(board, 0, 0, 1000));
+        assertEquals(0, space.reachableAfterMove(board, 0, 1, 1000));
+    }
+
+    @Test
+    void tailFreesUpTest() throws IOException {
+        // boxed in by our own body, but the tail leaves in time
+        SearchBoard board = SearchBoardTest.board("", "90:1,1 1,2 0,2 0,1");
+        SpaceAnalyzer space = new SpaceAnalyzer();
+        assertTrue(space.reachableAfterMove(board, 0, 2, 1000) > 4);
+    }
+
+    @Test
+    void voronoiTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:0,3 0,4 0,5", "90:6,3 6,4 6,5");
+        SpaceAnalyzer space = new SpaceAnalyzer();
+        int mine = space.voronoi(board, 0);
+        assertEquals(mine, space.getTerritory(1));
+        // the middle column is contested and belongs to nobody
+        assertTrue(mine + space.getTerritory(1) < 49 - 6);
+
+        SearchBoard longer = SearchBoardTest.board("", "90:0,3 0,4 0,5 0,6", "90:6,3 6,4 6,5");
+        int more = space.voronoi(longer, 0);
+        assertTrue(more > space.getTerritory(1));
+    }
+
+    @Test
+    void repeatedCallsAgreeTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("", "90:3,3 3,4 3,5", "90:5,5 5,6 6,6");
+        SpaceAnalyzer space = new SpaceAnalyzer();
+        int first = space.voronoi(board, 0);
+        for (int i = 0; i < 1000; i++)
+            space.reachable(board, 1, 1000);
+        assertEquals(first, space.voronoi(board, 0));
+    }
+}
@@ -0,0 +1,75 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TranspositionTableTest {
+
+    @Test
+    void storeAndProbeTest() {
+        TranspositionTable table = new TranspositionTable(1024);
+        table.store(42L, 7, -1234, TranspositionTable.LOWER, 2);
+        long entry = table.probe(42L);
+        assertNotEquals(0, entry);
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(-1234, TranspositionTable.score(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(2, TranspositionTable.move(entry));
+        assertEquals(0, table.probe(43L));
+    }
+
+    @Test
+    void deeperResultIsKeptTest() {
+        TranspositionTable table = new TranspositionTable(2);
+        table.store(1L, 9, 10, TranspositionTable.EXACT, 0);
+        table.store(2L, 3, 20, TranspositionTable.EXACT, 1);
+        table.store(3L, 2, 30, TranspositionTable.EXACT, 3);
+        // the deep entry stays, the shallow ones share the always-replace slot
+        assertEquals(10, TranspositionTable.score(table.probe(1L)));
+        assertEquals(0, table.probe(2L));
+        assertEquals(30, TranspositionTable.score(table.probe(3L)));
+    }
+
+    @Test
+    void staleResultGivesWayTest() {
+        TranspositionTable table = new TranspositionTable(2);
+        table.store(1L, 9, 10, TranspositionTable.EXACT, 0);
+        table.newSearch();
+        table.store(2L, 1, 20, TranspositionTable.EXACT, 1);
+        assertEquals(20, TranspositionTable.score(table.probe(2L)));
+        table.store(3L, 0, 30, TranspositionTable.EXACT, 1);
+        assertEquals(20, TranspositionTable.score(table.probe(2L)));
+        assertEquals(30, TranspositionTable.score(table.probe(3L)));
+    }
+
+    @Test
+    void incrementalHashMatchesFullHashTest() throws IOException {
+        SearchBoard board = SearchBoardTest.board("2,2 4,4 1,5", "90:3,3 3,4 3,5", "5:5,1 5,2 6,2",
+                "60:0,6 1,6 2,6 3,6");
+        Random random = new Random(7);
+        int[] moves = new int[3];
+        for (int turn = 0; turn < 30 && board.isAlive(0); turn++) {
+            for (int s = 0; s < 3; s++)
+                moves[s] = random.nextInt(4);
+            board.step(moves);
+            assertEquals(board.computeHash(), board.getHash());
+        }
+    }
+    @Test
+    void tablesFitTheBudgetTest() {
+        long budget = 256L << 20;
+        int entries = TranspositionTable.entriesFor(budget, 256);
+        assertEquals(1 << 16, entries);
+        assertTrue(entries * 16L * 256 <= budget);
+        // a few games on a big heap still stop at 2 MB each
+        assertEquals(TranspositionTable.MAX_ENTRIES, TranspositionTable.entriesFor(4L << 30, 4));
+        assertEquals(TranspositionTable.MIN_ENTRIES, TranspositionTable.entriesFor(1 << 20, 256));
+    }
+
+}
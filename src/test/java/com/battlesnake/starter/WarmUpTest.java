@@ -0,0 +1,29 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WarmUpTest {
+
+    @Test
+    void playsMovesTest() {
+        assertTrue(WarmUp.run(200) > 0);
+    }
+
+    @Test
+    void skipsWithNoTimeTest() {
+        assertEquals(0, WarmUp.run(0));
+    }
+
+    @Test
+    void leavesNothingBehindTest() {
+        GameState.getPositionCache().clear();
+        OpponentModel.forgetAll();
+        assertTrue(WarmUp.run(200) > 0);
+        assertEquals(0, GameState.getPositionCache().size());
+        assertEquals(0, OpponentModel.knownCount());
+    }
+
+}